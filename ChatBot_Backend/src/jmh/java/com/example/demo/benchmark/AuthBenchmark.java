@@ -0,0 +1,53 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.Services.AuthService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logins per second at the configured bcrypt cost (compare with {@code -p bcryptStrength=8,10,12}),
+ * with all cores logging in concurrently through the bounded auth pool, against the cost of
+ * validating the issued token on later requests.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class AuthBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Token {
+        public String value;
+
+        // Also migrates user 0's plaintext password, so the measured logins verify a hash
+        @Setup(Level.Trial)
+        public void login(SeededApplication app) {
+            value = app.authService.login("user0@example.com", "password0").token();
+        }
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public AuthService.Login login(SeededApplication app, Token token) {
+        return app.authService.login("user0@example.com", "password0");
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String validateToken(SeededApplication app, Token token) {
+        return app.jwtService.userIdOf(token.value);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class FriendRequestServiceBenchmark {
+
+    @Benchmark
+    public List<User> getFriendList(SeededApplication app) {
+        return app.friendRequestService.getFriendList(app.userIds.get(0));
+    }
+
+    @Benchmark
+    public List<String> getFriendListWithNames(SeededApplication app) {
+        return app.friendRequestService.getFriendListWithNames(app.userIds.get(0));
+    }
+}
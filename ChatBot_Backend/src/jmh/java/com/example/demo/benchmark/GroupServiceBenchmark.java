@@ -0,0 +1,45 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.Services.GroupService;
+import com.example.demo.model.Group;
+import com.example.demo.model.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class GroupServiceBenchmark {
+
+    @Benchmark
+    public Message sendMessageToBigGroup(SeededApplication app) {
+        Message message = new Message(app.userIds.get(0), null, "benchmark message", "0");
+        return app.groupService.sendMessage(app.bigGroupId, message);
+    }
+
+    @Benchmark
+    public List<Message> getBigGroupLatestPage(SeededApplication app) {
+        return app.groupService.getMessageHistory(app.bigGroupId, null, null, 50);
+    }
+
+    @Benchmark
+    public List<Group> getUserGroupsCached(SeededApplication app) {
+        return app.groupService.getUserGroups(app.userIds.get(0));
+    }
+
+    @Benchmark
+    public List<Group> getUserGroupsUncached(SeededApplication app) {
+        app.cacheManager.getCache(GroupService.USER_GROUPS_CACHE).clear();
+        return app.groupService.getUserGroups(app.userIds.get(0));
+    }
+}
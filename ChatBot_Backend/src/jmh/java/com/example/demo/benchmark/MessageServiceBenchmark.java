@@ -0,0 +1,32 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class MessageServiceBenchmark {
+
+    @Benchmark
+    public Message sendMessage(SeededApplication app) {
+        Message message = new Message(app.userIds.get(0), app.userIds.get(1), "benchmark message", "0");
+        return app.messageService.sendMessage(message);
+    }
+
+    @Benchmark
+    public List<Message> getConversationLatestPage(SeededApplication app) {
+        return app.messageService.getConversation(app.userIds.get(0), app.userIds.get(1), null, null, 50);
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.Services.AuthService;
+import com.example.demo.Services.FriendRequestService;
+import com.example.demo.Services.GroupService;
+import com.example.demo.Services.JwtService;
+import com.example.demo.Services.MessageService;
+import com.example.demo.Services.MessageStamper;
+import com.example.demo.model.Group;
+import com.example.demo.model.GroupMessage;
+import com.example.demo.model.Message;
+import com.example.demo.model.User;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Boots the application against an in-memory MongoDB wire-protocol server and seeds it:
+ * {@code users} users, a "big" group with {@code groupMessages} messages, a direct conversation
+ * with {@code conversationMessages} messages and a user with {@code friends} friends.
+ * User 0 is the subject of the read benchmarks. Seeded passwords are plaintext, as before
+ * hashing was introduced, and are migrated to bcrypt on first login.
+ */
+@State(Scope.Benchmark)
+public class SeededApplication {
+
+    private static final int SMALL_GROUPS = 1_000;
+    private static final int INSERT_BATCH = 5_000;
+
+    @Param("10000")
+    public int users;
+
+    @Param("100000")
+    public int groupMessages;
+
+    @Param("10000")
+    public int conversationMessages;
+
+    @Param("500")
+    public int friends;
+
+    @Param("10")
+    public int bcryptStrength;
+
+    public List<String> userIds;
+    public String bigGroupId;
+
+    public MessageService messageService;
+    public GroupService groupService;
+    public FriendRequestService friendRequestService;
+    public CacheManager cacheManager;
+    public AuthService authService;
+    public JwtService jwtService;
+
+    private MongoServer mongoServer;
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() {
+        mongoServer = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = mongoServer.bind();
+
+        // Passed as arguments so they take precedence over application.properties
+        context = new SpringApplicationBuilder(DemoApplication.class).run(
+                "--server.port=0",
+                "--spring.data.mongodb.uri=mongodb://" + address.getHostString() + ":" + address.getPort(),
+                "--spring.data.mongodb.database=benchmark",
+                "--chat.migration.group-messages.enabled=false",
+                "--chat.migration.conversation-id.enabled=false",
+                "--chat.migration.sequence.enabled=false",
+                "--chat.migration.text-index.enabled=false",
+                "--chat.migration.conversation-summaries.enabled=false",
+                "--chat.auth.bcrypt-strength=" + bcryptStrength,
+                "--logging.level.root=WARN");
+
+        seed(context.getBean(MongoTemplate.class), context.getBean(MessageStamper.class));
+
+        messageService = context.getBean(MessageService.class);
+        groupService = context.getBean(GroupService.class);
+        friendRequestService = context.getBean(FriendRequestService.class);
+        cacheManager = context.getBean(CacheManager.class);
+        authService = context.getBean(AuthService.class);
+        jwtService = context.getBean(JwtService.class);
+    }
+
+    private void seed(MongoTemplate mongoTemplate, MessageStamper messageStamper) {
+        Random random = new Random(42);
+
+        userIds = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            userIds.add(new ObjectId().toHexString());
+        }
+
+        List<User> userDocuments = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            User user = new User();
+            user.setId(userIds.get(i));
+            user.setName("user" + i);
+            user.setEmail("user" + i + "@example.com");
+            user.setPassword("password" + i);
+            int friendCount = i == 0 ? friends : 20;
+            for (int f = 0; f < friendCount; f++) {
+                user.getFriends().add(userIds.get(i == 0 ? 1 + f % (users - 1) : random.nextInt(users)));
+            }
+            userDocuments.add(user);
+        }
+        insertInBatches(mongoTemplate, userDocuments, User.class);
+
+        List<Group> groups = new ArrayList<>();
+        Group bigGroup = new Group();
+        bigGroup.setName("big");
+        bigGroup.setMembers(new ArrayList<>(userIds.subList(0, Math.min(100, users))));
+        groups.add(bigGroup);
+        for (int g = 0; g < SMALL_GROUPS; g++) {
+            Group group = new Group();
+            group.setName("group" + g);
+            if (g % 20 == 0) {
+                group.getMembers().add(userIds.get(0));
+            }
+            for (int m = 0; m < 10; m++) {
+                group.getMembers().add(userIds.get(random.nextInt(users)));
+            }
+            groups.add(group);
+        }
+        mongoTemplate.insert(groups, Group.class);
+        bigGroupId = bigGroup.getId();
+
+        List<GroupMessage> history = new ArrayList<>(groupMessages);
+        for (int i = 0; i < groupMessages; i++) {
+            Message message = new Message(bigGroup.getMembers().get(i % bigGroup.getMembers().size()), null,
+                    "group message " + i, String.valueOf(i));
+            message.setId(new ObjectId().toHexString());
+            history.add(new GroupMessage(bigGroupId, message));
+        }
+        messageStamper.stamp(history);  // History is paged by sequence number
+        insertInBatches(mongoTemplate, history, GroupMessage.class);
+
+        List<Message> conversation = new ArrayList<>(conversationMessages);
+        for (int i = 0; i < conversationMessages; i++) {
+            String sender = userIds.get(i % 2);
+            String receiver = userIds.get(1 - i % 2);
+            Message message = new Message(sender, receiver, "direct message " + i, String.valueOf(i));
+            message.setId(new ObjectId().toHexString());
+            message.setConversationId(Message.conversationIdOf(sender, receiver));
+            conversation.add(message);
+        }
+        messageStamper.stamp(conversation);
+        insertInBatches(mongoTemplate, conversation, Message.class);
+    }
+
+    private static <T> void insertInBatches(MongoTemplate mongoTemplate, List<T> documents, Class<T> type) {
+        for (int from = 0; from < documents.size(); from += INSERT_BATCH) {
+            mongoTemplate.insert(documents.subList(from, Math.min(from + INSERT_BATCH, documents.size())), type);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+        mongoServer.shutdownNow();
+    }
+}
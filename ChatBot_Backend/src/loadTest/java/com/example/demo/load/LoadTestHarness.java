@@ -0,0 +1,294 @@
+package com.example.demo.load;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.Services.MessageStamper;
+import com.example.demo.model.Group;
+import com.example.demo.model.GroupMessage;
+import com.example.demo.model.Message;
+import com.example.demo.model.User;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.bson.types.ObjectId;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * End-to-end load test. Boots the application against an in-memory MongoDB stand-in (or the
+ * MongoDB given with --mongo=mongodb://...), seeds synthetic users, friendships, groups and
+ * messages, then drives a weighted mix of the real REST endpoints with a fixed number of
+ * concurrent clients and prints an HDR-histogram latency report per endpoint. Full percentile
+ * distributions are written to build/reports/load/&lt;endpoint&gt;.hgrm.
+ *
+ * Options: --mongo=embedded --users=1000 --friends=20 --groups=100 --groupSize=20 --messages=20000
+ *          --concurrency=100 --warmup=10 --duration=60
+ */
+public class LoadTestHarness {
+
+    private final Map<String, String> options;
+    private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+    private final List<String> weighted = new ArrayList<>();
+
+    private HttpClient client;
+    private String baseUrl;
+    private List<String> userIds;
+    private List<String> groupIds;
+    private Map<String, List<String>> groupMembers;
+
+    // One endpoint of the workload mix: how to build a request and its latency recorder
+    private record Endpoint(String name, Function<LoadTestHarness, HttpRequest> request,
+                            Recorder recorder, AtomicLong errors) {}
+
+    private LoadTestHarness(Map<String, String> options) {
+        this.options = options;
+
+        endpoints("GET /messages/conversation", 30, h -> h.get("/messages/conversation?senderId=" + h.user()
+                + "&receiverId=" + h.user() + "&limit=50"));
+        endpoints("POST /messages/send", 20, h -> h.post("/messages/send", String.format(
+                "{\"senderId\":\"%s\",\"receiverId\":\"%s\",\"content\":\"load test\",\"timestamp\":\"%d\"}",
+                h.user(), h.user(), System.currentTimeMillis())));
+        endpoints("POST /groups/messages", 15, h -> h.post("/groups/messages",
+                "{\"groupId\":\"" + h.group() + "\",\"limit\":50}"));
+        endpoints("POST /groups/send-message", 10, h -> {
+            String groupId = h.group();
+            return h.post("/groups/send-message", String.format(
+                    "{\"groupId\":\"%s\",\"senderId\":\"%s\",\"content\":\"load test\",\"timestamp\":\"%d\"}",
+                    groupId, h.memberOf(groupId), System.currentTimeMillis()));
+        });
+        endpoints("GET /groups/user/{id}", 8, h -> h.get("/groups/user/" + h.user()));
+        endpoints("GET /friends/friendsWithNames", 7, h -> h.get("/friends/friendsWithNames?userId=" + h.user()));
+        endpoints("GET /friends", 3, h -> h.get("/friends?userId=" + h.user()));
+        endpoints("GET /users/{id}/name", 5, h -> h.get("/users/" + h.user() + "/name"));
+        endpoints("POST /users/login", 2, h -> {
+            int i = ThreadLocalRandom.current().nextInt(h.userIds.size());
+            return h.post("/users/login", "{\"email\":\"user" + i + "@example.com\",\"password\":\"password" + i + "\"}");
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        new LoadTestHarness(options).run();
+    }
+
+    private void run() throws Exception {
+        String mongo = option("mongo", "embedded");
+        MongoServer mongoServer = null;
+        if ("embedded".equals(mongo)) {
+            mongoServer = new MongoServer(new MemoryBackend());
+            InetSocketAddress address = mongoServer.bind();
+            mongo = "mongodb://" + address.getHostString() + ":" + address.getPort();
+        }
+
+        // Passed as arguments so they take precedence over application.properties
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class).run(
+                "--server.port=0",
+                "--spring.data.mongodb.uri=" + mongo,
+                "--spring.data.mongodb.database=loadtest",
+                "--logging.level.root=WARN")) {
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+
+            seed(context.getBean(MongoTemplate.class), context.getBean(MessageStamper.class));
+
+            int concurrency = Integer.parseInt(option("concurrency", "100"));
+            System.out.printf("Warming up for %ss...%n", option("warmup", "10"));
+            drive(concurrency, Integer.parseInt(option("warmup", "10")));
+            endpoints.values().forEach(endpoint -> {
+                endpoint.recorder().reset();
+                endpoint.errors().set(0);
+            });
+
+            int duration = Integer.parseInt(option("duration", "60"));
+            System.out.printf("Running %d clients for %ds...%n", concurrency, duration);
+            drive(concurrency, duration);
+            report(duration);
+        } finally {
+            if (mongoServer != null) {
+                mongoServer.shutdownNow();
+            }
+        }
+    }
+
+    private void seed(MongoTemplate mongoTemplate, MessageStamper messageStamper) {
+        int users = Integer.parseInt(option("users", "1000"));
+        int friends = Integer.parseInt(option("friends", "20"));
+        int groups = Integer.parseInt(option("groups", "100"));
+        int groupSize = Integer.parseInt(option("groupSize", "20"));
+        int messages = Integer.parseInt(option("messages", "20000"));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        userIds = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            userIds.add(new ObjectId().toHexString());
+        }
+        List<User> userDocuments = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            User user = new User();
+            user.setId(userIds.get(i));
+            user.setName("user" + i);
+            user.setEmail("user" + i + "@example.com");
+            user.setPassword("password" + i);
+            for (int f = 0; f < friends; f++) {
+                user.getFriends().add(user());
+            }
+            userDocuments.add(user);
+        }
+        mongoTemplate.insert(userDocuments, User.class);
+
+        groupIds = new ArrayList<>(groups);
+        groupMembers = new HashMap<>();
+        List<Group> groupDocuments = new ArrayList<>(groups);
+        for (int g = 0; g < groups; g++) {
+            Group group = new Group();
+            group.setName("group" + g);
+            for (int m = 0; m < groupSize; m++) {
+                group.getMembers().add(user());
+            }
+            groupDocuments.add(group);
+        }
+        mongoTemplate.insert(groupDocuments, Group.class);
+        groupDocuments.forEach(group -> {
+            groupIds.add(group.getId());
+            groupMembers.put(group.getId(), group.getMembers());
+        });
+
+        // Half the messages are direct, half go to groups
+        List<Message> direct = new ArrayList<>();
+        List<GroupMessage> grouped = new ArrayList<>();
+        for (int i = 0; i < messages; i++) {
+            Message message = new Message(user(), user(), "seed message " + i, String.valueOf(i));
+            message.setId(new ObjectId().toHexString());
+            if (random.nextBoolean()) {
+                message.setConversationId(Message.conversationIdOf(message.getSenderId(), message.getReceiverId()));
+                direct.add(message);
+            } else {
+                grouped.add(new GroupMessage(group(), message));
+            }
+        }
+        messageStamper.stamp(direct);  // History is paged by sequence number
+        messageStamper.stamp(grouped);
+        mongoTemplate.insert(direct, Message.class);
+        mongoTemplate.insert(grouped, GroupMessage.class);
+
+        System.out.printf("Seeded %d users, %d groups, %d direct and %d group messages%n",
+                users, groups, direct.size(), grouped.size());
+    }
+
+    private void drive(int concurrency, int seconds) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                executor.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        Endpoint endpoint = endpoints.get(weighted.get(ThreadLocalRandom.current().nextInt(weighted.size())));
+                        HttpRequest request = endpoint.request().apply(this);
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                endpoint.errors().incrementAndGet();
+                                continue;
+                            }
+                            endpoint.recorder().recordValue(System.nanoTime() - start);
+                        } catch (Exception e) {
+                            endpoint.errors().incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    private void report(int seconds) throws Exception {
+        File directory = new File(option("reportDir", "build/reports/load"));
+        directory.mkdirs();
+
+        System.out.printf("%n%-30s %9s %9s %9s %9s %9s %9s %9s %7s%n",
+                "endpoint", "count", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        for (Endpoint endpoint : endpoints.values()) {
+            Histogram histogram = endpoint.recorder().getIntervalHistogram();
+            System.out.printf("%-30s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %7d%n",
+                    endpoint.name(), histogram.getTotalCount(), histogram.getTotalCount() / (double) seconds,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()), endpoint.errors().get());
+
+            String fileName = endpoint.name().replaceAll("[^A-Za-z]+", "_").replaceAll("^_|_$", "") + ".hgrm";
+            try (PrintStream out = new PrintStream(new FileOutputStream(new File(directory, fileName)))) {
+                histogram.outputPercentileDistribution(out, 1_000_000.0);  // In milliseconds
+            }
+        }
+        System.out.println("\nPercentile distributions written to " + directory.getAbsolutePath());
+    }
+
+    private void endpoints(String name, int weight, Function<LoadTestHarness, HttpRequest> request) {
+        endpoints.put(name, new Endpoint(name, request, new Recorder(TimeUnit.MINUTES.toNanos(1), 3), new AtomicLong()));
+        for (int i = 0; i < weight; i++) {
+            weighted.add(name);
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private String user() {
+        return userIds.get(ThreadLocalRandom.current().nextInt(userIds.size()));
+    }
+
+    private String group() {
+        return groupIds.get(ThreadLocalRandom.current().nextInt(groupIds.size()));
+    }
+
+    private String memberOf(String groupId) {
+        List<String> members = groupMembers.get(groupId);
+        return members.get(ThreadLocalRandom.current().nextInt(members.size()));
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
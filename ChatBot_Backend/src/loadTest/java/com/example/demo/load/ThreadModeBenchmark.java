@@ -0,0 +1,146 @@
+package com.example.demo.load;
+
+import com.example.demo.DemoApplication;
+import org.bson.types.ObjectId;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Boots the application once per request thread mode (platform pool, then virtual threads),
+ * drives {@code GET /messages/conversation} with a fixed number of concurrent connections and
+ * prints throughput and latency percentiles for each mode.
+ *
+ * Options: --concurrency=500 --duration=20 --warmup=5 --modes=platform,virtual
+ */
+public class ThreadModeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "500"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "20"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        List<String> modes = Arrays.asList(options.getOrDefault("modes", "platform,virtual").split(","));
+
+        List<String> report = new ArrayList<>();
+        for (String mode : modes) {
+            report.add(run(mode, concurrency, warmupSeconds, durationSeconds));
+        }
+
+        System.out.printf("%n%-10s %12s %10s %10s %10s %8s%n", "mode", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        report.forEach(System.out::println);
+    }
+
+    private static String run(String mode, int concurrency, int warmupSeconds, int durationSeconds) throws Exception {
+        boolean virtual = "virtual".equals(mode);
+        // Passed as arguments so they take precedence over application.properties
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+                .run("--server.port=0", "--spring.threads.virtual.enabled=" + virtual)) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+
+            // A fresh conversation per run so both modes read the same amount of data
+            String userA = new ObjectId().toHexString();
+            String userB = new ObjectId().toHexString();
+            for (int i = 0; i < 100; i++) {
+                String body = String.format("{\"senderId\":\"%s\",\"receiverId\":\"%s\",\"content\":\"message %d\",\"timestamp\":\"%d\"}",
+                        i % 2 == 0 ? userA : userB, i % 2 == 0 ? userB : userA, i, System.currentTimeMillis());
+                client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/messages/send"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(), HttpResponse.BodyHandlers.discarding());
+            }
+            HttpRequest request = HttpRequest.newBuilder(URI.create(
+                    baseUrl + "/messages/conversation?senderId=" + userA + "&receiverId=" + userB + "&limit=50")).GET().build();
+
+            drive(client, request, concurrency, warmupSeconds);
+            Result result = drive(client, request, concurrency, durationSeconds);
+            return String.format("%-10s %12.0f %10.2f %10.2f %10.2f %8d", mode,
+                    result.count() / (double) durationSeconds,
+                    result.percentile(0.50), result.percentile(0.99), result.percentile(1.0), result.errors());
+        }
+    }
+
+    // Keeps `concurrency` requests in flight for the given time and records each latency
+    private static Result drive(HttpClient client, HttpRequest request, int concurrency, int seconds) throws Exception {
+        long end = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<Future<long[]>> workers = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < end) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                                continue;
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+
+            List<long[]> all = new ArrayList<>();
+            for (Future<long[]> worker : workers) {
+                all.add(worker.get());
+            }
+            long[] merged = all.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            return new Result(merged, errors.get());
+        }
+    }
+
+    private record Result(long[] sortedNanos, long errors) {
+
+        long count() {
+            return sortedNanos.length;
+        }
+
+        double percentile(double quantile) {
+            if (sortedNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sortedNanos.length) - 1;
+            return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.Controller;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+// The chat.export.admin-token check shared by the servlet and reactive controllers. The comparison
+// takes the same time wherever the given token differs; an empty configured token matches nothing.
+final class AdminToken {
+
+    private AdminToken() {
+    }
+
+    static boolean matches(String configuredToken, String givenToken) {
+        return !configuredToken.isEmpty() && givenToken != null && MessageDigest.isEqual(
+                configuredToken.getBytes(StandardCharsets.UTF_8), givenToken.getBytes(StandardCharsets.UTF_8));
+    }
+}
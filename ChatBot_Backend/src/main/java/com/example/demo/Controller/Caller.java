@@ -0,0 +1,62 @@
+package com.example.demo.Controller;
+
+import com.example.demo.Services.GroupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Arrays;
+
+// The user a request acts for. Requests with a token act for the token's user: user IDs in the
+// request must be that user (403 otherwise) and group endpoints require membership. Requests
+// without a token (only accepted while chat.auth.require-token is false) act for whichever
+// IDs they carry, as before tokens existed.
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class Caller {
+
+    @Autowired
+    private GroupService groupService;
+
+    // The token's user ID, or null for a request without a token
+    String userId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication instanceof UsernamePasswordAuthenticationToken ? authentication.getName() : null;
+    }
+
+    boolean authenticated() {
+        return userId() != null;
+    }
+
+    // The user ID to act as: the token's user, which the ID in the request must match if it has one
+    String as(String requestedUserId) {
+        String userId = userId();
+        if (userId == null) {
+            return requestedUserId;
+        }
+        if (requestedUserId != null && !requestedUserId.equals(userId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not allowed to act as another user");
+        }
+        return userId;
+    }
+
+    // For endpoints about several users, e.g. both ends of a conversation: the token's user must be one of them
+    void requireOneOf(String... userIds) {
+        String userId = userId();
+        if (userId != null && !Arrays.asList(userIds).contains(userId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not a participant");
+        }
+    }
+
+    void requireMember(String groupId) {
+        String userId = userId();
+        if (userId != null && !groupService.isMember(groupId, userId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not a member of the group");
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.Controller;
+
+import com.example.demo.Services.ConversationSummaryService;
+import com.example.demo.model.ConversationSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/conversations")
+public class ConversationController {
+
+    @Autowired
+    private ConversationSummaryService conversationSummaryService;
+    @Autowired
+    private Caller caller;
+
+    // The user's chat list: last message and unread count per conversation and group, most recent first
+    @GetMapping
+    public List<ConversationSummary> getConversations(@RequestParam String userId,
+                                                      @RequestParam(required = false) Integer limit) {
+        return conversationSummaryService.getSummaries(caller.as(userId), limit);
+    }
+
+    // Marks a conversation ("direct", chatId = other user's ID) or group ("group", chatId = group ID) as read;
+    // 403 unless the user is a member of the group or has messages with the other user
+    @PostMapping("/read")
+    public String markRead(@RequestBody Map<String, String> requestBody) {
+        conversationSummaryService.markRead(caller.as(requestBody.get("userId")), requestBody.get("chatType"),
+                requestBody.get("chatId"));
+        return "Marked as read";
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.demo.Controller;
+
+// Pagination cursors read from JSON bodies: sequence numbers may come as JSON numbers or strings.
+// Anything else is passed on as text and fails cursor parsing with a 400.
+final class Cursors {
+
+    private Cursors() {}
+
+    static String of(Object value) {
+        return value == null ? null : value.toString();
+    }
+}
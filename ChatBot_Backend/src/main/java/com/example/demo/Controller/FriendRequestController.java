@@ -1,8 +1,10 @@
 package com.example.demo.Controller;
 
 import com.example.demo.Services.FriendRequestService;
+import com.example.demo.model.LeanUser;
 import com.example.demo.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -10,31 +12,45 @@ import java.util.List;
 import java.util.Map;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/friends")
 public class FriendRequestController {
 
     @Autowired
     private FriendRequestService friendRequestService;
+    @Autowired
+    private Caller caller;
 
     // Endpoint to send a friend request using request body
     @PostMapping("/add")
     public String sendFriendRequest(@RequestBody Map<String, String> requestBody) {
-        String senderId = requestBody.get("senderId");
+        String senderId = caller.as(requestBody.get("senderId"));
         String receiverId = requestBody.get("receiverId");
         return friendRequestService.sendFriendRequest(senderId, receiverId);
     }
 
-    // Endpoint to accept a friend request
+    // Endpoint to accept a friend request (with a token, only its receiver can accept it)
     @PostMapping("/accept")
     public String acceptFriendRequest(@RequestBody Map<String, String> requestBody) {
         String senderId = requestBody.get("senderId");
-        String receiverId = requestBody.get("receiverId");
+        String receiverId = caller.as(requestBody.get("receiverId"));
         return friendRequestService.acceptFriendRequest(senderId, receiverId);
     }
 
-    // Endpoint to retrieve the friend list of a user
+    // Endpoint to retrieve the friend list of a user; view=lean returns only IDs and names
     @GetMapping
-    public ResponseEntity<?> getFriendList(@RequestParam String userId) {
+    public ResponseEntity<?> getFriendList(@RequestParam String userId, @RequestParam(required = false) String view) {
+        userId = caller.as(userId);
+        if (LeanView.requested(view)) {
+            List<LeanUser> friends = friendRequestService.getFriendNamesById(userId).entrySet().stream()
+                    .map(friend -> new LeanUser(friend.getKey(), friend.getValue()))
+                    .toList();
+            if (friends.isEmpty()) {
+                return ResponseEntity.status(404).body("No friends found");
+            }
+            return ResponseEntity.ok(friends);
+        }
+
         List<User> friends = friendRequestService.getFriendList(userId);
         if (friends.isEmpty()) {
             return ResponseEntity.status(404).body("No friends found");
@@ -44,6 +60,7 @@ public class FriendRequestController {
 
     @GetMapping("/pending")
     public ResponseEntity<?> getPendingFriendRequests(@RequestParam String userId) {
+        userId = caller.as(userId);
         // Check if the user exists
         boolean userExists = friendRequestService.doesUserExist(userId);
         if (!userExists) {
@@ -57,7 +74,7 @@ public class FriendRequestController {
 
     @GetMapping("/friendsWithNames")
     public ResponseEntity<?> getFriendListWithNames(@RequestParam String userId) {
-        List<String> friendNames = friendRequestService.getFriendListWithNames(userId);
+        List<String> friendNames = friendRequestService.getFriendListWithNames(caller.as(userId));
 
         // Eğer arkadaş listesi boşsa, boş bir dizi dönelim
         if (friendNames.isEmpty()) {
@@ -68,7 +85,7 @@ public class FriendRequestController {
     }
     @GetMapping("/friendsWithIds")
     public ResponseEntity<?> getFriendListWithIds(@RequestParam String userId) {
-        List<String> friendIds = friendRequestService.getFriendListWithIds(userId);
+        List<String> friendIds = friendRequestService.getFriendListWithIds(caller.as(userId));
 
         // Eğer arkadaş listesi boşsa, boş bir dizi dönelim
         if (friendIds.isEmpty()) {
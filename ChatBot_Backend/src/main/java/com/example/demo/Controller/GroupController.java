@@ -1,24 +1,46 @@
 package com.example.demo.Controller;
 
 import com.example.demo.model.Group;
+import com.example.demo.model.InboxEntry;
+import com.example.demo.model.LeanGroup;
+import com.example.demo.model.LeanMessage;
 import com.example.demo.model.Message;
+import com.example.demo.Services.GroupDelivery;
 import com.example.demo.Services.GroupService;
+import com.example.demo.Services.MessageExportService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/groups")
 public class GroupController {
 
     @Autowired
     private GroupService groupService;
+    @Autowired
+    private MessageExportService messageExportService;
+    @Autowired
+    private GroupDelivery groupDelivery;
+    @Autowired
+    private Caller caller;
 
-    // Creates a new group with initial members
+    // Creates a new group with initial members (with a token, the token's user must be one of them)
     @PostMapping("/create")
     public Group createGroup(@RequestBody Group group) {
+        if (caller.authenticated() && (group.getMembers() == null || !group.getMembers().contains(caller.userId()))) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "The creator must be a member of the group");
+        }
         return groupService.createGroup(group);
     }
 
@@ -27,6 +49,7 @@ public class GroupController {
     public Group addMemberToGroup(@RequestBody Map<String, String> requestBody) {
         String groupId = requestBody.get("groupId");
         String memberId = requestBody.get("memberId");
+        caller.requireMember(groupId);
         return groupService.addMember(groupId, memberId);
     }
 
@@ -34,7 +57,8 @@ public class GroupController {
     @PostMapping("/send-message")
     public Message sendMessageToGroup(@RequestBody Map<String, Object> requestBody) {
         String groupId = (String) requestBody.get("groupId");
-        String senderId = (String) requestBody.get("senderId");
+        String senderId = caller.as((String) requestBody.get("senderId"));
+        caller.requireMember(groupId);
         String receiverId = (String) requestBody.get("receiverId");  // You need to include receiverId in the request
         String content = (String) requestBody.get("content");
         String timestamp = (String) requestBody.get("timestamp");
@@ -46,23 +70,62 @@ public class GroupController {
         return groupService.sendMessage(groupId, message);
     }
 
-    // Retrieves the message history for the specified group
+    // Retrieves the message history for the specified group.
+    // Paginated: optional "before"/"after" take a message sequence number as cursor, "limit" caps the
+    // page size. "view": "lean" returns compact messages.
     @PostMapping("/messages")
-    public List<Message> getMessageHistory(@RequestBody Map<String, String> requestBody) {
-        String groupId = requestBody.get("groupId");
-        return groupService.getMessageHistory(groupId);
+    public List<?> getMessageHistory(@RequestBody Map<String, Object> requestBody) {
+        String groupId = (String) requestBody.get("groupId");
+        String after = Cursors.of(requestBody.get("after"));
+        String before = Cursors.of(requestBody.get("before"));
+        Integer limit = requestBody.get("limit") instanceof Number n ? n.intValue() : null;
+        String view = (String) requestBody.get("view");
+        caller.requireMember(groupId);
+        return LeanView.apply(view, groupService.getMessageHistory(groupId, after, before, limit), LeanMessage::of);
+    }
+
+    // Retrieves the user's inbox: messages of groups delivered by fan-out-on-write, across all groups.
+    // Only groups whose strategy is "inbox" appear here (see /groups/delivery; by default groups of more
+    // than chat.fanout.threshold members), and
+    // entries expire after 30 days; everything is always readable through /groups/messages.
+    // Paginated with message IDs as "before"/"after" cursors.
+    @GetMapping("/inbox")
+    public List<InboxEntry> getInbox(@RequestParam String userId,
+                                     @RequestParam(required = false) String after,
+                                     @RequestParam(required = false) String before,
+                                     @RequestParam(required = false) Integer limit) {
+        return groupDelivery.getInbox(caller.as(userId), after, before, limit);
+    }
+
+    // How the group's messages are delivered: {"groupId", "memberCount", "strategy"}, where strategy
+    // "inbox" means they also appear in /groups/inbox and "read" means only in /groups/messages
+    @GetMapping("/delivery")
+    public GroupDelivery.Route getDelivery(@RequestParam String groupId) {
+        caller.requireMember(groupId);
+        return groupService.getDelivery(groupId);
     }
 
     // Retrieves the list of members for the specified group
     @PostMapping("/members")
     public List<String> getGroupMembers(@RequestBody Map<String, String> requestBody) {
         String groupId = requestBody.get("groupId");
+        caller.requireMember(groupId);
         return groupService.getMembers(groupId);
     }
+    // Groups the user is a member of; view=lean returns member counts instead of member lists
     @GetMapping("/user/{userId}")
-    public List<Group> getUserGroups(@PathVariable String userId) {
-        return groupService.getUserGroups(userId);
+    public List<?> getUserGroups(@PathVariable String userId, @RequestParam(required = false) String view) {
+        return LeanView.apply(view, groupService.getUserGroups(caller.as(userId)), LeanGroup::of);
     }
 
-
-}
\ No newline at end of file
+    // Streams the group's full message history as NDJSON (gzip when accepted)
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public void exportGroupMessages(@RequestParam String groupId,
+                                    @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                    HttpServletResponse response) throws IOException {
+        caller.requireMember(groupId);
+        try (OutputStream out = NdjsonResponse.open(response, acceptEncoding, "group-" + groupId)) {
+            messageExportService.exportGroup(groupId, out);
+        }
+    }
+}
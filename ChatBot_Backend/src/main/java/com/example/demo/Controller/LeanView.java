@@ -0,0 +1,20 @@
+package com.example.demo.Controller;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Optional compact response shapes: list endpoints return the lean DTOs when called with view=lean
+final class LeanView {
+
+    static final String LEAN = "lean";
+
+    private LeanView() {}
+
+    static boolean requested(String view) {
+        return LEAN.equals(view);
+    }
+
+    static <T> List<?> apply(String view, List<T> full, Function<T, ?> lean) {
+        return requested(view) ? full.stream().map(lean).toList() : full;
+    }
+}
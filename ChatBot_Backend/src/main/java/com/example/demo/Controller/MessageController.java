@@ -1,39 +1,126 @@
 package com.example.demo.Controller;
 
+import com.example.demo.model.LeanMessage;
 import com.example.demo.model.Message;
+import com.example.demo.Services.MessageExportService;
+import com.example.demo.Services.MessageSearchService;
 import com.example.demo.Services.MessageService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/messages")
 public class MessageController {
 
     @Autowired
     private MessageService messageService;
+    @Autowired
+    private MessageExportService messageExportService;
+    @Autowired
+    private MessageSearchService messageSearchService;
+    @Autowired
+    private Caller caller;
 
-    // Endpoint to send a message
+    @Value("${chat.export.admin-token:}")
+    private String exportAdminToken;
+
+    // Endpoint to send a message (with a token, senderId is the token's user)
     @PostMapping("/send")
     public Message sendMessage(@RequestBody Message message) {
+        message.setSenderId(caller.as(message.getSenderId()));
         return messageService.sendMessage(message);
     }
 
-    // Endpoint to get messages by receiverId
+    // Endpoint to get messages by receiverId.
+    // Paginated: "before"/"after" take a message ID as cursor, "limit" caps the page size.
+    // view=lean returns compact messages.
     @GetMapping("/receiver")
-    public List<Message> getMessages(@RequestParam String receiverId) {
-        return messageService.getMessages(receiverId);
+    public List<?> getMessages(@RequestParam String receiverId,
+                               @RequestParam(required = false) String after,
+                               @RequestParam(required = false) String before,
+                               @RequestParam(required = false) Integer limit,
+                               @RequestParam(required = false) String view) {
+        return LeanView.apply(view, messageService.getMessages(caller.as(receiverId), after, before, limit),
+                LeanMessage::of);
     }
 
-    // Endpoint to get all messages
+    // Endpoint to get all messages (paginated like /receiver); requests with a user token also need
+    // the admin token header
     @GetMapping("/all")
-    public List<Message> getAllMessages() {
-        return messageService.getAllMessages();
+    public List<?> getAllMessages(@RequestParam(required = false) String after,
+                                  @RequestParam(required = false) String before,
+                                  @RequestParam(required = false) Integer limit,
+                                  @RequestParam(required = false) String view,
+                                  @RequestHeader(value = "X-Admin-Token", required = false) String adminToken) {
+        if (caller.authenticated() && !isAdmin(adminToken)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Listing all messages requires the admin token");
+        }
+        return LeanView.apply(view, messageService.getAllMessages(after, before, limit), LeanMessage::of);
     }
 
+    // Endpoint to get the conversation between two users (paginated like /receiver, but with the
+    // messages' sequence numbers as "before"/"after" cursors)
     @GetMapping("/conversation")
-    public List<Message> getConversation(@RequestParam String senderId, @RequestParam String receiverId) {
-        return messageService.getConversation(senderId, receiverId);
+    public List<?> getConversation(@RequestParam String senderId, @RequestParam String receiverId,
+                                   @RequestParam(required = false) String after,
+                                   @RequestParam(required = false) String before,
+                                   @RequestParam(required = false) Integer limit,
+                                   @RequestParam(required = false) String view) {
+        caller.requireOneOf(senderId, receiverId);
+        return LeanView.apply(view, messageService.getConversation(senderId, receiverId, after, before, limit),
+                LeanMessage::of);
+    }
+
+    // Full-text search over the user's groups and direct conversations, most relevant first. Only the
+    // user's chat.search.max-chats (default 50) most recently active direct conversations are searched.
+    @GetMapping("/search")
+    public List<MessageSearchService.SearchHit> searchMessages(@RequestParam String userId, @RequestParam String q,
+                                                               @RequestParam(defaultValue = "0") int page,
+                                                               @RequestParam(required = false) Integer size) {
+        return messageSearchService.search(caller.as(userId), q, page, size);
+    }
+
+    // Streams messages as NDJSON (gzip when accepted): a conversation (senderId + receiverId),
+    // everything a user sent or received (userId), or, with the admin token header, all messages
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public void exportMessages(@RequestParam(required = false) String userId,
+                               @RequestParam(required = false) String senderId,
+                               @RequestParam(required = false) String receiverId,
+                               @RequestHeader(value = "X-Admin-Token", required = false) String adminToken,
+                               @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                               HttpServletResponse response) throws IOException {
+        if (senderId != null && receiverId != null) {
+            caller.requireOneOf(senderId, receiverId);
+            try (OutputStream out = NdjsonResponse.open(response, acceptEncoding, "conversation")) {
+                messageExportService.exportConversation(senderId, receiverId, out);
+            }
+        } else if (userId != null) {
+            caller.as(userId);
+            try (OutputStream out = NdjsonResponse.open(response, acceptEncoding, "messages-" + userId)) {
+                messageExportService.exportUser(userId, out);
+            }
+        } else if (isAdmin(adminToken)) {
+            try (OutputStream out = NdjsonResponse.open(response, acceptEncoding, "messages")) {
+                messageExportService.exportAll(out);
+            }
+        } else {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "Exporting all messages requires the admin token");
+        }
+    }
+
+    // Constant-time comparison, so response timing does not reveal how much of a guess was right
+    private boolean isAdmin(String adminToken) {
+        return AdminToken.matches(exportAdminToken, adminToken);
     }
-}
\ No newline at end of file
+}
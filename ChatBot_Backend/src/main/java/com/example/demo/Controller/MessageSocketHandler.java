@@ -0,0 +1,115 @@
+package com.example.demo.Controller;
+
+import com.example.demo.Services.GroupService;
+import com.example.demo.Services.MessagePushService;
+import com.example.demo.Services.PresenceService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.security.Principal;
+
+// WebSocket endpoint for real-time delivery: connect to /ws with a token (Authorization header or
+// ?access_token=<token>) to receive the token user's direct messages, then send {"action": "subscribe" | "unsubscribe", "groupId": "<id>"} to follow groups.
+// Clients stay online by sending {"action": "heartbeat"} and signal typing with
+// {"action": "typing", "chatType": "direct" | "group", "chatId": "<user or group id>"}. Frames that
+// are not valid JSON, have an unknown chatType or name a group the user is not a member of are ignored.
+// Unless chat.auth.require-token is set, /ws?userId=<id> without a token is still accepted.
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class MessageSocketHandler extends TextWebSocketHandler {
+
+    private static final String USER_ID = "userId";
+
+    @Autowired
+    private MessagePushService messagePushService;
+    @Autowired
+    private GroupService groupService;
+    @Autowired
+    private PresenceService presenceService;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${chat.auth.require-token:false}")
+    private boolean requireToken;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        String requested = session.getUri() == null ? null : UriComponentsBuilder.fromUri(session.getUri())
+                .build().getQueryParams().getFirst(USER_ID);
+        Principal principal = session.getPrincipal();
+
+        String userId;
+        if (principal != null) {
+            // The session belongs to the token's user; a different userId is never honoured
+            if (requested != null && !requested.equals(principal.getName())) {
+                session.close(CloseStatus.POLICY_VIOLATION.withReason("userId does not match the token"));
+                return;
+            }
+            userId = principal.getName();
+        } else if (requireToken) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason("A token is required"));
+            return;
+        } else {
+            userId = requested;
+        }
+        if (userId == null || userId.isEmpty()) {
+            session.close(CloseStatus.BAD_DATA.withReason("userId is required"));
+            return;
+        }
+        session.getAttributes().put(USER_ID, userId);
+        messagePushService.register(userId, session);
+        presenceService.heartbeat(userId);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        JsonNode request;
+        try {
+            request = objectMapper.readTree(message.getPayload());
+        } catch (JsonProcessingException e) {
+            return;
+        }
+        String action = request.path("action").asText();
+        String userId = (String) session.getAttributes().get(USER_ID);
+        if ("heartbeat".equals(action)) {
+            presenceService.heartbeat(userId);
+            return;
+        }
+        if ("typing".equals(action)) {
+            String chatType = request.path("chatType").asText();
+            String chatId = request.path("chatId").asText(null);
+            if (chatId != null && !chatId.isEmpty() && PresenceService.isChatType(chatType)) {
+                presenceService.typing(userId, chatType, chatId);
+            }
+            return;
+        }
+
+        String groupId = request.path("groupId").asText(null);
+        if (groupId == null) {
+            return;
+        }
+
+        if ("subscribe".equals(action)) {
+            if (groupService.isMember(groupId, userId)) {
+                messagePushService.subscribeToGroup(groupId, session);
+            }
+        } else if ("unsubscribe".equals(action)) {
+            messagePushService.unsubscribeFromGroup(groupId, session);
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        messagePushService.unregister(session);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.Controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+// Prepares a response for a streamed NDJSON export, gzip-compressed when the client accepts it
+final class NdjsonResponse {
+
+    static final String MEDIA_TYPE = "application/x-ndjson";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private NdjsonResponse() {}
+
+    static OutputStream open(HttpServletResponse response, String acceptEncoding, String fileName) throws IOException {
+        response.setContentType(MEDIA_TYPE);
+        // fileName may contain client-supplied IDs: let ContentDisposition quote and encode it
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(fileName + ".ndjson", StandardCharsets.UTF_8)
+                .build()
+                .toString());
+
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            response.setHeader("Content-Encoding", "gzip");
+            return new GZIPOutputStream(new BufferedOutputStream(response.getOutputStream(), BUFFER_SIZE), BUFFER_SIZE);
+        }
+        return new BufferedOutputStream(response.getOutputStream(), BUFFER_SIZE);
+    }
+}
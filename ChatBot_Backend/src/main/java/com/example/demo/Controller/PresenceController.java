@@ -0,0 +1,70 @@
+package com.example.demo.Controller;
+
+import com.example.demo.Services.FriendRequestService;
+import com.example.demo.Services.GroupService;
+import com.example.demo.Services.PresenceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/presence")
+public class PresenceController {
+
+    @Autowired
+    private PresenceService presenceService;
+    @Autowired
+    private FriendRequestService friendRequestService;
+    @Autowired
+    private GroupService groupService;
+    @Autowired
+    private Caller caller;
+
+    // Keeps the user online (clients without a WebSocket call this periodically)
+    @PostMapping("/heartbeat")
+    public String heartbeat(@RequestBody Map<String, String> requestBody) {
+        presenceService.heartbeat(caller.as(requestBody.get("userId")));
+        return "OK";
+    }
+
+    // Online status of many users at once; body is a JSON array of IDs
+    @PostMapping("/online")
+    public Map<String, Boolean> getOnline(@RequestBody List<String> userIds) {
+        return presenceService.getOnline(userIds);
+    }
+
+    // Online status of each of the user's friends
+    @GetMapping("/friends")
+    public Map<String, Boolean> getFriendsOnline(@RequestParam String userId) {
+        return presenceService.getOnline(friendRequestService.getFriendListWithIds(caller.as(userId)));
+    }
+
+    // Online status of each member of the group
+    @GetMapping("/group")
+    public Map<String, Boolean> getGroupOnline(@RequestParam String groupId) {
+        caller.requireMember(groupId);
+        return presenceService.getOnline(groupService.getMembers(groupId));
+    }
+
+    // Signals that the user is typing in a chat ("direct" with chatId = other user's ID, or a group they are a member of)
+    @PostMapping("/typing")
+    public String typing(@RequestBody Map<String, String> requestBody) {
+        if (!presenceService.typing(caller.as(requestBody.get("userId")), requestBody.get("chatType"), requestBody.get("chatId"))) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not a member of the group");
+        }
+        return "OK";
+    }
+
+    // Users other than userId currently typing in the chat (403 for groups userId is not a member of)
+    @GetMapping("/typing")
+    public List<String> getTyping(@RequestParam String userId, @RequestParam String chatType,
+                                  @RequestParam String chatId) {
+        return presenceService.getTyping(caller.as(userId), chatType, chatId);
+    }
+}
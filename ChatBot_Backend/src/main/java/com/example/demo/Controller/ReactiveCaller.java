@@ -0,0 +1,70 @@
+package com.example.demo.Controller;
+
+import com.example.demo.Services.ReactiveChatService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+// Caller for the "reactive" profile: the same rules, with the token's user read from the
+// subscriber context (ReactiveSecurityContextHolder) instead of the request thread.
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+class ReactiveCaller {
+
+    @Autowired
+    private ReactiveChatService chatService;
+
+    // The token's user ID, or empty for a request without a token
+    Mono<Optional<String>> userId() {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .filter(authentication -> authentication instanceof UsernamePasswordAuthenticationToken)
+                .map(Authentication::getName)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty());
+    }
+
+    Mono<Boolean> authenticated() {
+        return userId().map(Optional::isPresent);
+    }
+
+    // The user ID to act as: the token's user, which the ID in the request must match if it has one.
+    // Without a token, the requested ID; a request with neither is a 400 (a Mono cannot carry null).
+    Mono<String> as(String requestedUserId) {
+        return userId().flatMap(userId -> {
+            if (userId.isEmpty()) {
+                return requestedUserId != null
+                        ? Mono.just(requestedUserId)
+                        : Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "A user ID is required"));
+            }
+            if (requestedUserId != null && !requestedUserId.equals(userId.get())) {
+                return Mono.error(new ResponseStatusException(HttpStatus.FORBIDDEN, "Not allowed to act as another user"));
+            }
+            return Mono.just(userId.get());
+        });
+    }
+
+    // For endpoints about several users, e.g. both ends of a conversation: the token's user must be one of them
+    Mono<Void> requireOneOf(String... userIds) {
+        return userId().flatMap(userId -> userId.isPresent() && !Arrays.asList(userIds).contains(userId.get())
+                ? Mono.error(new ResponseStatusException(HttpStatus.FORBIDDEN, "Not a participant"))
+                : Mono.empty());
+    }
+
+    Mono<Void> requireMember(String groupId) {
+        return userId().flatMap(userId -> userId.isEmpty() ? Mono.empty() : chatService.isMember(groupId, userId.get())
+                .flatMap(member -> member
+                        ? Mono.<Void>empty()
+                        : Mono.error(new ResponseStatusException(HttpStatus.FORBIDDEN, "Not a member of the group"))));
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.Controller;
+
+import com.example.demo.model.ConversationSummary;
+import com.example.demo.Services.ReactiveChatService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+// ConversationController for the "reactive" profile; with a token, userId must be the token's user
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/conversations")
+public class ReactiveConversationController {
+
+    @Autowired
+    private ReactiveChatService chatService;
+    @Autowired
+    private ReactiveCaller caller;
+
+    @GetMapping
+    public Flux<ConversationSummary> getConversations(@RequestParam String userId,
+                                                      @RequestParam(required = false) Integer limit) {
+        return caller.as(userId).flatMapMany(user -> chatService.getSummaries(user, limit));
+    }
+
+    @PostMapping("/read")
+    public Mono<String> markRead(@RequestBody Map<String, String> requestBody) {
+        return caller.as(requestBody.get("userId"))
+                .flatMap(userId -> chatService.markRead(userId, requestBody.get("chatType"), requestBody.get("chatId")))
+                .thenReturn("Marked as read");
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.demo.Controller;
+
+import com.example.demo.model.Group;
+import com.example.demo.model.Message;
+import com.example.demo.Services.ReactiveChatService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+// GroupController for the "reactive" profile, with the same checks for requests with a token
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/groups")
+public class ReactiveGroupController {
+
+    @Autowired
+    private ReactiveChatService chatService;
+    @Autowired
+    private ReactiveCaller caller;
+
+    @PostMapping("/create")
+    public Mono<Group> createGroup(@RequestBody Group group) {
+        return caller.userId().flatMap(userId -> {
+            if (userId.isPresent() && (group.getMembers() == null || !group.getMembers().contains(userId.get()))) {
+                return Mono.error(new ResponseStatusException(HttpStatus.FORBIDDEN, "The creator must be a member of the group"));
+            }
+            return chatService.createGroup(group);
+        });
+    }
+
+    @PostMapping("/add-member")
+    public Mono<Group> addMemberToGroup(@RequestBody Map<String, String> requestBody) {
+        String groupId = requestBody.get("groupId");
+        return caller.requireMember(groupId)
+                .then(Mono.defer(() -> chatService.addMember(groupId, requestBody.get("memberId"))));
+    }
+
+    @PostMapping("/send-message")
+    public Mono<Message> sendMessageToGroup(@RequestBody Map<String, Object> requestBody) {
+        String groupId = (String) requestBody.get("groupId");
+        return caller.as((String) requestBody.get("senderId"))
+                .flatMap(senderId -> caller.requireMember(groupId).then(Mono.defer(() -> {
+                    Message message = new Message(senderId, (String) requestBody.get("receiverId"),
+                            (String) requestBody.get("content"), (String) requestBody.get("timestamp"));
+                    return chatService.sendGroupMessage(groupId, message);
+                })));
+    }
+
+    @PostMapping(value = "/messages", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Message> getMessageHistory(@RequestBody Map<String, Object> requestBody) {
+        String groupId = (String) requestBody.get("groupId");
+        Integer limit = requestBody.get("limit") instanceof Number n ? n.intValue() : null;
+        return caller.requireMember(groupId).thenMany(Flux.defer(() -> chatService.getGroupHistory(groupId,
+                Cursors.of(requestBody.get("after")), Cursors.of(requestBody.get("before")), limit)));
+    }
+
+    @PostMapping("/members")
+    public Mono<List<String>> getGroupMembers(@RequestBody Map<String, String> requestBody) {
+        String groupId = requestBody.get("groupId");
+        return caller.requireMember(groupId).then(Mono.defer(() -> chatService.getMembers(groupId)));
+    }
+
+    @GetMapping("/user/{userId}")
+    public Flux<Group> getUserGroups(@PathVariable String userId) {
+        return caller.as(userId).flatMapMany(chatService::getUserGroups);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.Controller;
+
+import com.example.demo.model.Message;
+import com.example.demo.Services.ReactiveChatService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// MessageController for the "reactive" profile. History endpoints return a Flux, written as a
+// JSON array or, with "Accept: application/x-ndjson", streamed one message per line. Requests
+// with a token are checked like in MessageController (see ReactiveCaller).
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/messages")
+public class ReactiveMessageController {
+
+    @Autowired
+    private ReactiveChatService chatService;
+    @Autowired
+    private ReactiveCaller caller;
+
+    @Value("${chat.export.admin-token:}")
+    private String exportAdminToken;
+
+    @PostMapping("/send")
+    public Mono<Message> sendMessage(@RequestBody Message message) {
+        return caller.as(message.getSenderId())
+                .doOnNext(message::setSenderId)
+                .then(Mono.defer(() -> chatService.sendMessage(message)));
+    }
+
+    @GetMapping(value = "/receiver", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Message> getMessages(@RequestParam String receiverId,
+                                     @RequestParam(required = false) String after,
+                                     @RequestParam(required = false) String before,
+                                     @RequestParam(required = false) Integer limit) {
+        return caller.as(receiverId).flatMapMany(userId -> chatService.getMessages(userId, after, before, limit));
+    }
+
+    @GetMapping(value = "/all", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Message> getAllMessages(@RequestParam(required = false) String after,
+                                        @RequestParam(required = false) String before,
+                                        @RequestParam(required = false) Integer limit,
+                                        @RequestHeader(value = "X-Admin-Token", required = false) String adminToken) {
+        return caller.authenticated().flatMapMany(authenticated -> {
+            if (authenticated && !AdminToken.matches(exportAdminToken, adminToken)) {
+                return Flux.error(new ResponseStatusException(HttpStatus.FORBIDDEN, "Listing all messages requires the admin token"));
+            }
+            return chatService.getAllMessages(after, before, limit);
+        });
+    }
+
+    @GetMapping(value = "/conversation", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Message> getConversation(@RequestParam String senderId, @RequestParam String receiverId,
+                                         @RequestParam(required = false) String after,
+                                         @RequestParam(required = false) String before,
+                                         @RequestParam(required = false) Integer limit) {
+        return caller.requireOneOf(senderId, receiverId)
+                .thenMany(Flux.defer(() -> chatService.getConversation(senderId, receiverId, after, before, limit)));
+    }
+}
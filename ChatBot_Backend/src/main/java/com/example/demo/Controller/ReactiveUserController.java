@@ -0,0 +1,57 @@
+package com.example.demo.Controller;
+
+import com.example.demo.model.User;
+import com.example.demo.Services.ReactiveUserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+// UserController for the "reactive" profile
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/users")
+public class ReactiveUserController {
+
+    @Autowired
+    private ReactiveUserService reactiveUserService;
+
+    @PostMapping("/register")
+    public Mono<User> register(@RequestBody User user) {
+        return reactiveUserService.register(user);
+    }
+
+    @PostMapping("/login")
+    public Mono<ResponseEntity<User>> login(@RequestBody User user) {
+        return reactiveUserService.login(user.getEmail(), user.getPassword())
+                .map(login -> ResponseEntity.ok()
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + login.token())
+                        .body(login.user()));
+    }
+
+    @GetMapping("/all")
+    public Flux<User> getAllUsers() {
+        return reactiveUserService.getAllUsers();
+    }
+
+    @GetMapping("/{id}/name")
+    public Mono<String> getUserNameById(@PathVariable String id) {
+        return reactiveUserService.getUserNameById(id);
+    }
+
+    @GetMapping("/name/{name}/id")
+    public Mono<String> getUserIdByName(@PathVariable String name) {
+        return reactiveUserService.getUserIdByName(name);
+    }
+
+    @PostMapping("/names")
+    public Mono<Map<String, String>> getUserNamesByIds(@RequestBody List<String> ids) {
+        return reactiveUserService.getUserNamesByIds(ids);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.Controller;
+
+import com.example.demo.Services.SyncService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/sync")
+public class SyncController {
+
+    @Autowired
+    private SyncService syncService;
+    @Autowired
+    private Caller caller;
+
+    // Returns messages newer than the client's per-conversation/per-group watermarks, e.g.
+    // {"userId": "...", "conversations": {"<friendId>": "<lastSequence>"}, "groups": {"<groupId>": "<lastSequence>"},
+    //  "since": "<since of the previous response>", "limit": 100}
+    // The response carries the new watermarks, plus "since" and "sinceHasMore" for conversations not listed yet
+    @PostMapping
+    public SyncService.SyncResponse sync(@RequestBody SyncService.SyncRequest request) {
+        return syncService.sync(new SyncService.SyncRequest(caller.as(request.userId()), request.conversations(),
+                request.groups(), request.since(), request.limit()));
+    }
+}
@@ -1,17 +1,27 @@
 package com.example.demo.Controller;
 
+import com.example.demo.model.LeanUser;
 import com.example.demo.model.User;
+import com.example.demo.Services.AuthService;
 import com.example.demo.Services.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/users")
 public class UserController {
     @Autowired
     private UserService userService;
+    @Autowired
+    private AuthService authService;
 
     // Register a new user
     @PostMapping("/register")
@@ -19,15 +29,22 @@ public class UserController {
         return userService.register(user);
     }
 
-    // Login a user
+    // Login a user; the access token for later requests is returned in the Authorization header.
+    // Answered asynchronously: the request thread is released while the password is verified.
     @PostMapping("/login")
-    public User login(@RequestBody User user) {
-        return userService.login(user.getEmail(), user.getPassword());
+    public CompletableFuture<ResponseEntity<User>> login(@RequestBody User user) {
+        return authService.loginAsync(user.getEmail(), user.getPassword())
+                .thenApply(login -> ResponseEntity.ok()
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + login.token())
+                        .body(login.user()));
     }
 
-    // Get all users and their information
+    // Get all users and their information; view=lean returns only IDs and names (loaded with a projection)
     @GetMapping("/all")
-    public List<User> getAllUsers() {
+    public List<?> getAllUsers(@RequestParam(required = false) String view) {
+        if (LeanView.requested(view)) {
+            return userService.getAllUserNames().stream().map(LeanUser::of).toList();
+        }
         return userService.getAllUsers();
     }
 
@@ -39,4 +56,10 @@ public class UserController {
     public String getUserIdByName(@PathVariable String name) {
         return userService.getUserIdByName(name);
     }
+
+    // Resolve many user IDs to names in one call; body is a JSON array of IDs
+    @PostMapping("/names")
+    public Map<String, String> getUserNamesByIds(@RequestBody List<String> ids) {
+        return userService.getUserNamesByIds(ids);
+    }
 }
@@ -0,0 +1,17 @@
+package com.example.demo.Repository;
+
+import com.example.demo.model.GroupMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface GroupMessageRepository extends MongoRepository<GroupMessage, String> {
+
+    // Page of a group's messages within a sequence range (served by the groupId/sequence index)
+    @Query("{ 'groupId': ?0, 'sequence': { $gt: ?1, $lt: ?2 } }")
+    List<GroupMessage> findPage(String groupId, long after, long before, Pageable pageable);
+}
@@ -2,8 +2,16 @@ package com.example.demo.Repository;
 
 import com.example.demo.model.Group;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface GroupRepository extends MongoRepository<Group, String> {
+
+    // Groups containing the user, via the multikey index on members.
+    // Excludes the legacy embedded message array of groups that were not migrated yet.
+    @Query(value = "{ 'members': ?0 }", fields = "{ 'messages': 0 }")
+    List<Group> findByMember(String userId);
 }
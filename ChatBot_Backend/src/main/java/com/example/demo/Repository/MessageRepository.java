@@ -1,16 +1,39 @@
 package com.example.demo.Repository;
 
 import com.example.demo.model.Message;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.time.Instant;
 import java.util.List;
 
 public interface MessageRepository extends MongoRepository<Message, String> {
 
-    // Query to find messages by receiverId
-    List<Message> findByReceiverId(String receiverId);
+    // Page of messages by receiverId within an id range
+    @Query("{ 'receiverId': ?0, '_id': { $gt: ?1, $lt: ?2 } }")
+    List<Message> findReceivedPage(String receiverId, ObjectId after, ObjectId before, Pageable pageable);
 
-    // Find messages between two users (bidirectional query)
-    List<Message> findBySenderIdAndReceiverIdOrReceiverIdAndSenderId(
-            String senderId, String receiverId, String receiverId2, String senderId2);
-}
+    // Users who sent receiverId messages at or after a time, with the send time of the last one, in
+    // that order (served by the receiverId/sentAt index)
+    @Aggregation(pipeline = {
+            "{ $match: { 'receiverId': ?0, 'sentAt': { $gte: ?1 } } }",
+            "{ $group: { '_id': '$senderId', 'lastSentAt': { $max: '$sentAt' } } }",
+            "{ $sort: { 'lastSentAt': 1, '_id': 1 } }",
+            "{ $limit: ?2 }"
+    })
+    List<Sender> findSendersSince(String receiverId, Instant since, int limit);
+
+    record Sender(@Id String senderId, Instant lastSentAt) {}
 
+    // Page of a conversation within a sequence range (served by the conversationId/sequence index)
+    @Query("{ 'conversationId': ?0, 'sequence': { $gt: ?1, $lt: ?2 } }")
+    List<Message> findConversationPage(String conversationId, long after, long before, Pageable pageable);
+
+    // Page of all messages within an id range
+    @Query("{ '_id': { $gt: ?0, $lt: ?1 } }")
+    List<Message> findPage(ObjectId after, ObjectId before, Pageable pageable);
+}
@@ -0,0 +1,14 @@
+package com.example.demo.Repository;
+
+import com.example.demo.model.GroupMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+// Non-blocking counterpart of GroupMessageRepository, used by the "reactive" profile
+public interface ReactiveGroupMessageRepository extends ReactiveMongoRepository<GroupMessage, String> {
+
+    @Query("{ 'groupId': ?0, 'sequence': { $gt: ?1, $lt: ?2 } }")
+    Flux<GroupMessage> findPage(String groupId, long after, long before, Pageable pageable);
+}
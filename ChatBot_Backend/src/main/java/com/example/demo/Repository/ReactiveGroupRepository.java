@@ -0,0 +1,13 @@
+package com.example.demo.Repository;
+
+import com.example.demo.model.Group;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+// Non-blocking counterpart of GroupRepository, used by the "reactive" profile
+public interface ReactiveGroupRepository extends ReactiveMongoRepository<Group, String> {
+
+    @Query(value = "{ 'members': ?0 }", fields = "{ 'messages': 0 }")
+    Flux<Group> findByMember(String userId);
+}
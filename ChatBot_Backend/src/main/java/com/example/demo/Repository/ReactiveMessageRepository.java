@@ -0,0 +1,21 @@
+package com.example.demo.Repository;
+
+import com.example.demo.model.Message;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+// Non-blocking counterpart of MessageRepository, used by the "reactive" profile
+public interface ReactiveMessageRepository extends ReactiveMongoRepository<Message, String> {
+
+    @Query("{ 'receiverId': ?0, '_id': { $gt: ?1, $lt: ?2 } }")
+    Flux<Message> findReceivedPage(String receiverId, ObjectId after, ObjectId before, Pageable pageable);
+
+    @Query("{ 'conversationId': ?0, 'sequence': { $gt: ?1, $lt: ?2 } }")
+    Flux<Message> findConversationPage(String conversationId, long after, long before, Pageable pageable);
+
+    @Query("{ '_id': { $gt: ?0, $lt: ?1 } }")
+    Flux<Message> findPage(ObjectId after, ObjectId before, Pageable pageable);
+}
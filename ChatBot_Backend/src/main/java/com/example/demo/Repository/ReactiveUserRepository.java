@@ -0,0 +1,19 @@
+package com.example.demo.Repository;
+
+import com.example.demo.model.User;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+// Non-blocking counterpart of UserRepository, used by the "reactive" profile
+public interface ReactiveUserRepository extends ReactiveMongoRepository<User, String> {
+
+    Mono<User> findByEmail(String email);
+    Mono<User> findByName(String name);
+
+    @Query(value = "{ '_id': { $in: ?0 } }", fields = "{ 'name': 1 }")
+    Flux<User> findNamesByIdIn(Collection<String> ids);
+}
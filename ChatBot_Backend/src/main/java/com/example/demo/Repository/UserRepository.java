@@ -2,11 +2,26 @@ package com.example.demo.Repository;
 
 import com.example.demo.model.User;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends MongoRepository<User, String> {
     // Find user by email (optional, if needed elsewhere)
     Optional<User> findByEmail(String email);
     Optional<User> findByName(String name);
+
+    // Batch lookup returning only id and name
+    @Query(value = "{ '_id': { $in: ?0 } }", fields = "{ 'name': 1 }")
+    List<User> findNamesByIdIn(Collection<String> ids);
+
+    // Batch lookup returning only id, name and e-mail (no password hash or friend lists)
+    @Query(value = "{ '_id': { $in: ?0 } }", fields = "{ 'name': 1, 'email': 1 }")
+    List<User> findProfilesByIdIn(Collection<String> ids);
+
+    // Every user, returning only id and name
+    @Query(value = "{}", fields = "{ 'name': 1 }")
+    List<User> findAllNames();
 }
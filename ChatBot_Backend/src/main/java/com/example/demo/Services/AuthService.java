@@ -0,0 +1,83 @@
+package com.example.demo.Services;
+
+import com.example.demo.model.User;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Runs logins (password hash verification, which is deliberately CPU-heavy) on a bounded pool of
+// chat.auth.threads threads, by default one per core, so a login burst cannot take every request
+// thread or oversubscribe the CPU. Logins beyond the pool and its queue are rejected immediately.
+// A successful login returns a JWT that authenticates later requests without a database lookup.
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AuthService {
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private JwtService jwtService;
+
+    @Value("${chat.auth.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private final ThreadPoolExecutor executor;
+
+    public record Login(User user, String token) {}
+
+    public AuthService(@Value("${chat.auth.threads:0}") int threads,
+                       @Value("${chat.auth.queue-capacity:256}") int queueCapacity) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "auth");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public Login login(String email, String password) {
+        try {
+            return loginAsync(email, password).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Login failed", e.getCause());
+        }
+    }
+
+    // Completes on the auth pool, or fails with "Login timed out" after chat.auth.timeout-ms; callers
+    // that do not block on it (the login endpoints) keep their request threads free meanwhile
+    public CompletableFuture<Login> loginAsync(String email, String password) {
+        CompletableFuture<Login> login;
+        try {
+            login = CompletableFuture.supplyAsync(() -> {
+                User user = userService.login(email, password);
+                return new Login(user, jwtService.issue(user));
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new RuntimeException("Too many logins in progress, try again later"));
+        }
+        return login.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).exceptionallyCompose(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            return CompletableFuture.failedFuture(
+                    cause instanceof TimeoutException ? new RuntimeException("Login timed out") : cause);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
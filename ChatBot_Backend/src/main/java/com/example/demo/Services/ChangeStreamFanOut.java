@@ -0,0 +1,203 @@
+package com.example.demo.Services;
+
+import com.example.demo.model.GroupMessage;
+import com.example.demo.model.Message;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Cluster delivery for running several backend nodes: every node tails one MongoDB change stream
+// over inserts into the message and group_messages collections and pushes each new message to
+// the WebSocket sessions connected to it, whichever node saved it, and adds it to this node's recent
+// message cache. Needs a replica set (a single-node one is enough: mongod --replSet rs0, then rs.initiate()).
+//
+// The resume token of the last handled event is stored per node (chat.cluster.node-id) in
+// cluster_resume_tokens at most every chat.cluster.token-save-interval-ms, so a restarted node
+// continues where it stopped as long as the oplog still covers that point; otherwise it starts
+// from the current time. Stream errors are retried with backoff from the last token seen.
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "chat.cluster.change-streams.enabled", havingValue = "true")
+public class ChangeStreamFanOut {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeStreamFanOut.class);
+
+    static final String TOKENS_COLLECTION = "cluster_resume_tokens";
+    private static final String MESSAGES = "message";
+    private static final String GROUP_MESSAGES = "group_messages";
+    private static final int HISTORY_LOST = 286;  // ChangeStreamHistoryLost: token older than the oplog
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private MessagePushService messagePushService;
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${chat.cluster.node-id:${HOSTNAME:local}}")
+    private String nodeId;
+
+    @Value("${chat.cluster.token-save-interval-ms:1000}")
+    private long tokenSaveIntervalMs;
+
+    private volatile boolean running;
+    private Thread watcher;
+    private BsonDocument resumeToken;   // Last handled event; only touched by the watcher thread
+    private long tokenSavedAt;
+    private boolean tokenDirty;
+    private Counter directEvents;
+    private Counter groupEvents;
+
+    @PostConstruct
+    public void start() {
+        directEvents = meterRegistry.counter("chat.cluster.events", "collection", MESSAGES);
+        groupEvents = meterRegistry.counter("chat.cluster.events", "collection", GROUP_MESSAGES);
+        resumeToken = loadToken();
+        running = true;
+        watcher = new Thread(this::watchLoop, "change-stream-fanout");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watchLoop() {
+        long backoffMs = 1000;
+        while (running) {
+            try {
+                watch();
+                backoffMs = 1000;
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() == HISTORY_LOST) {
+                    log.warn("Resume token of node {} is no longer in the oplog, continuing from now", nodeId);
+                    resumeToken = null;
+                    continue;
+                }
+                backoffMs = retryAfter(e, backoffMs);
+            } catch (MongoException | IllegalStateException e) {
+                backoffMs = retryAfter(e, backoffMs);
+            }
+        }
+        Thread.interrupted();  // Clear the interrupt from stop() so the final save can run
+        saveToken(true);
+    }
+
+    private void watch() {
+        List<Bson> pipeline = List.of(Aggregates.match(Filters.and(
+                Filters.eq("operationType", "insert"),
+                Filters.in("ns.coll", MESSAGES, GROUP_MESSAGES))));
+        ChangeStreamIterable<Document> stream = mongoTemplate.getDb().watch(pipeline).maxAwaitTime(1, TimeUnit.SECONDS);
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        }
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+            log.info("Node {} is following message inserts{}", nodeId, resumeToken == null ? "" : " from its resume token");
+            while (running) {
+                ChangeStreamDocument<Document> event = cursor.tryNext();
+                if (event != null) {
+                    try {
+                        deliver(event);
+                    } catch (RuntimeException e) {
+                        // Skipped: one message that cannot be read or pushed must not hold up the stream
+                        log.warn("Node {} could not deliver change stream event {}", nodeId, event.getDocumentKey(), e);
+                    }
+                    resumeToken = event.getResumeToken();
+                    tokenDirty = true;
+                } else if (cursor.getResumeToken() != null && !cursor.getResumeToken().equals(resumeToken)) {
+                    resumeToken = cursor.getResumeToken();  // Post-batch token, advances even without events
+                    tokenDirty = true;
+                }
+                saveToken(false);
+            }
+        }
+    }
+
+    private void deliver(ChangeStreamDocument<Document> event) {
+        Document document = event.getFullDocument();
+        if (document == null || event.getNamespace() == null) {
+            return;
+        }
+        if (MESSAGES.equals(event.getNamespace().getCollectionName())) {
+            directEvents.increment();
+            Message message = mongoTemplate.getConverter().read(Message.class, document);
+            recentMessageCache.append(message.getConversationId(), message);
+            messagePushService.publishFromCluster(null, message);
+        } else {
+            groupEvents.increment();
+            GroupMessage groupMessage = mongoTemplate.getConverter().read(GroupMessage.class, document);
+            Message message = groupMessage.toMessage();
+            recentMessageCache.append(MessageStamper.groupKey(groupMessage.getGroupId()), message);
+            messagePushService.publishFromCluster(groupMessage.getGroupId(), message);
+        }
+    }
+
+    private BsonDocument loadToken() {
+        Document stored = mongoTemplate.findById(nodeId, Document.class, TOKENS_COLLECTION);
+        if (stored == null || !(stored.get("token") instanceof Document token)) {
+            return null;
+        }
+        return token.toBsonDocument();
+    }
+
+    private void saveToken(boolean force) {
+        long now = System.currentTimeMillis();
+        if (resumeToken == null || !tokenDirty || (!force && now - tokenSavedAt < tokenSaveIntervalMs)) {
+            return;
+        }
+        try {
+            mongoTemplate.upsert(new Query(Criteria.where("_id").is(nodeId)),
+                    new Update().set("token", Document.parse(resumeToken.toJson())).currentDate("savedAt"), TOKENS_COLLECTION);
+            tokenSavedAt = now;
+            tokenDirty = false;
+        } catch (RuntimeException e) {
+            log.warn("Could not save resume token of node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    private long retryAfter(RuntimeException e, long backoffMs) {
+        if (!running) {
+            return backoffMs;
+        }
+        log.warn("Change stream of node {} failed, retrying in {} ms: {}", nodeId, backoffMs, e.getMessage());
+        try {
+            Thread.sleep(backoffMs);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+        return Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        watcher.interrupt();
+        watcher.join(TimeUnit.SECONDS.toMillis(5));
+    }
+}
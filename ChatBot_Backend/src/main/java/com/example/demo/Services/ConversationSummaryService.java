@@ -0,0 +1,200 @@
+package com.example.demo.Services;
+
+import com.example.demo.model.ConversationSummary;
+import com.example.demo.model.Group;
+import com.example.demo.model.Message;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collection;
+import java.util.List;
+
+// Keeps each user's chat list (last message preview, time and unread count per conversation
+// and group) up to date with small upserts on the send path, so the home screen is one
+// indexed read instead of a history fetch per chat.
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ConversationSummaryService {
+
+    private static final int PREVIEW_LENGTH = 100;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private Pagination pagination;
+
+    // Both rows get the new last message and the receiver's row also counts it as unread. Sends of a
+    // chat can finish out of order, so the last message only moves forward (see newerThanLast).
+    public void directMessageSent(Message message) {
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, ConversationSummary.class)
+                .upsert(byId(message.getSenderId(), ConversationSummary.DIRECT, message.getReceiverId()),
+                        owner(message.getSenderId(), ConversationSummary.DIRECT, message.getReceiverId()))
+                .upsert(byId(message.getReceiverId(), ConversationSummary.DIRECT, message.getSenderId()),
+                        owner(message.getReceiverId(), ConversationSummary.DIRECT, message.getSenderId()).inc("unreadCount", 1))
+                .updateMulti(newerThanLast(directRows(message), message), lastMessage(message))
+                .execute();
+    }
+
+    // One multi-update counting the message as unread for every other member, an upsert of the
+    // sender's row, and one multi-update of the last message of every row that is behind
+    public void groupMessageSent(String groupId, Message message) {
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, ConversationSummary.class)
+                .updateMulti(otherMembers(groupId, message.getSenderId()), unread())
+                .upsert(byId(message.getSenderId(), ConversationSummary.GROUP, groupId),
+                        owner(message.getSenderId(), ConversationSummary.GROUP, groupId))
+                .updateMulti(newerThanLast(groupRows(groupId), message), lastMessage(message))
+                .execute();
+    }
+
+    // Creates group rows for new members so later group sends reach them with the multi-update
+    public void membersAdded(String groupId, Collection<String> memberIds) {
+        if (memberIds.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ConversationSummary.class);
+        for (String memberId : memberIds) {
+            bulk.upsert(byId(memberId, ConversationSummary.GROUP, groupId), owner(memberId, ConversationSummary.GROUP, groupId));
+        }
+        bulk.execute();
+    }
+
+    // Creates both rows of a conversation and moves their last message to the given one when they are
+    // behind, without counting it as unread (used to backfill conversations that predate chat lists)
+    public void lastDirectMessage(Message message) {
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, ConversationSummary.class)
+                .upsert(byId(message.getSenderId(), ConversationSummary.DIRECT, message.getReceiverId()),
+                        owner(message.getSenderId(), ConversationSummary.DIRECT, message.getReceiverId()))
+                .upsert(byId(message.getReceiverId(), ConversationSummary.DIRECT, message.getSenderId()),
+                        owner(message.getReceiverId(), ConversationSummary.DIRECT, message.getSenderId()))
+                .updateMulti(newerThanLast(directRows(message), message), lastMessage(message))
+                .execute();
+    }
+
+    // Moves the last message of the group's rows that are behind to the given one, without
+    // counting it as unread (used to backfill rows of groups that predate chat lists)
+    public void lastGroupMessage(String groupId, Message message) {
+        mongoTemplate.updateMulti(newerThanLast(groupRows(groupId), message), lastMessage(message), ConversationSummary.class);
+    }
+
+    // The user's chat list, most recent first
+    public List<ConversationSummary> getSummaries(String userId, Integer limit) {
+        return mongoTemplate.find(summariesOf(userId, pagination.pageSize(limit)), ConversationSummary.class);
+    }
+
+    // IDs of the user's most recently active chats of one type, most recent first
+    public List<String> recentChatIds(String userId, String chatType, int limit) {
+        Query query = summariesOf(userId, limit).addCriteria(Criteria.where("chatType").is(chatType));
+        query.fields().include("chatId");
+        return mongoTemplate.find(query, ConversationSummary.class).stream()
+                .map(ConversationSummary::getChatId)
+                .toList();
+    }
+
+    // Read receipt: resets the unread count of one conversation or group the user takes part in
+    public void markRead(String userId, String chatType, String chatId) {
+        Update read = read(userId, chatType, chatId);
+        if (!mongoTemplate.exists(participation(userId, chatType, chatId), participationType(chatType))) {
+            throw notAParticipant();
+        }
+        mongoTemplate.upsert(byId(userId, chatType, chatId), read, ConversationSummary.class);
+    }
+
+    // Queries and updates below are shared with the reactive stack (ReactiveChatService)
+
+    static Query summariesOf(String userId, int limit) {
+        return new Query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.DESC, "lastSentAt"))
+                .limit(limit);
+    }
+
+    static Query otherMembers(String groupId, String senderId) {
+        return groupRows(groupId).addCriteria(Criteria.where("userId").ne(senderId));
+    }
+
+    static Query groupRows(String groupId) {
+        return new Query(Criteria.where("chatType").is(ConversationSummary.GROUP).and("chatId").is(groupId));
+    }
+
+    static Query directRows(Message message) {
+        return new Query(Criteria.where("_id").in(
+                ConversationSummary.idOf(message.getSenderId(), ConversationSummary.DIRECT, message.getReceiverId()),
+                ConversationSummary.idOf(message.getReceiverId(), ConversationSummary.DIRECT, message.getSenderId())));
+    }
+
+    // Narrows rows to those whose last message is older than the given one: by sequence, or by send
+    // time for a message without one. Rows without a last message match too.
+    static Query newerThanLast(Query rows, Message message) {
+        return rows.addCriteria(message.getSequence() != null
+                ? Criteria.where("lastSequence").not().gte(message.getSequence())
+                : Criteria.where("lastSentAt").not().gt(message.getSentAt()));
+    }
+
+    // Read receipts may only create rows of chats the user takes part in, since group sends update
+    // every row of the group: the group must have the user as a member, and a direct conversation
+    // must have messages between the user and chatId
+    static Query participation(String userId, String chatType, String chatId) {
+        if (ConversationSummary.GROUP.equals(chatType)) {
+            return GroupService.member(chatId, userId);
+        }
+        return new Query(Criteria.where("conversationId").is(Message.conversationIdOf(userId, chatId)));
+    }
+
+    static Class<?> participationType(String chatType) {
+        return ConversationSummary.GROUP.equals(chatType) ? Group.class : Message.class;
+    }
+
+    static ResponseStatusException notAParticipant() {
+        return new ResponseStatusException(HttpStatus.FORBIDDEN, "Not a participant of the chat");
+    }
+
+    static Update unread() {
+        return new Update().inc("unreadCount", 1);
+    }
+
+    static Update read(String userId, String chatType, String chatId) {
+        if (!ConversationSummary.DIRECT.equals(chatType) && !ConversationSummary.GROUP.equals(chatType)) {
+            throw new RuntimeException("chatType must be \"direct\" or \"group\"");
+        }
+        if (userId == null || chatId == null) {
+            throw new RuntimeException("userId and chatId are required");
+        }
+        return owner(userId, chatType, chatId).set("unreadCount", 0L);
+    }
+
+    static Query byId(String userId, String chatType, String chatId) {
+        return new Query(Criteria.where("_id").is(ConversationSummary.idOf(userId, chatType, chatId)));
+    }
+
+    // Fields identifying a row, written only when the upsert creates it
+    static Update owner(String userId, String chatType, String chatId) {
+        return new Update()
+                .setOnInsert("userId", userId)
+                .setOnInsert("chatType", chatType)
+                .setOnInsert("chatId", chatId);
+    }
+
+    static Update lastMessage(Message message) {
+        return new Update()
+                .set("lastMessageId", message.getId())
+                .set("lastSenderId", message.getSenderId())
+                .set("lastMessagePreview", preview(message.getContent()))
+                .set("lastSentAt", message.getSentAt())
+                .set("lastSequence", message.getSequence());
+    }
+
+    private static String preview(String content) {
+        if (content == null || content.length() <= PREVIEW_LENGTH) {
+            return content;
+        }
+        return content.substring(0, PREVIEW_LENGTH);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.demo.Services;
+
+import com.example.demo.model.Message;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+// Fan-out-on-read: the single group_messages document is the delivery, members page through
+// the group history. Writes cost the same for any group size.
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class FanOutOnReadDelivery implements GroupDeliveryStrategy {
+
+    public static final String NAME = "read";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean needsMembers() {
+        return false;
+    }
+
+    @Override
+    public void deliver(String groupId, Message message, List<String> memberIds) {
+        // Nothing to do beyond the group_messages insert
+    }
+}
@@ -3,83 +3,104 @@ package com.example.demo.Services;
 import com.example.demo.Repository.UserRepository;
 import com.example.demo.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class FriendRequestService {
 
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private MongoTemplate mongoTemplate;
 
-    // Send a friend request
+    // Send a friend request (a single conditional $addToSet on the receiver)
     public String sendFriendRequest(String senderId, String receiverId) {
-        // Validate sender and receiver existence
-        Optional<User> sender = userRepository.findById(senderId);
-        Optional<User> receiver = userRepository.findById(receiverId);
-
-        if (sender.isEmpty() || receiver.isEmpty()) {
+        // Validate sender existence
+        if (!userRepository.existsById(senderId)) {
             return "Sender or Receiver not found";
         }
 
-        User receiverUser = receiver.get();
+        // Add the friend request unless it is already pending
+        Query receiverWithoutRequest = identityOf(new Query(
+                Criteria.where("id").is(receiverId).and("pendingFriendRequests").ne(senderId)));
+        User receiver = mongoTemplate.findAndModify(receiverWithoutRequest,
+                new Update().addToSet("pendingFriendRequests", senderId), User.class);
 
-        // Check for duplicate friend requests
-        if (receiverUser.getPendingFriendRequests().contains(senderId)) {
-            return "Friend request already sent";
+        if (receiver == null) {
+            return userRepository.existsById(receiverId) ? "Friend request already sent" : "Sender or Receiver not found";
         }
-
-        // Add friend request
-        receiverUser.getPendingFriendRequests().add(senderId);
-        userRepository.save(receiverUser);
+        userService.evictUser(receiver);
 
         return "Friend request sent successfully";
     }
 
-    // Accept a friend request
+    // Accept a friend request (a pair of conditional updates, no read-modify-write)
     public String acceptFriendRequest(String senderId, String receiverId) {
-        // Validate sender and receiver existence
-        Optional<User> sender = userRepository.findById(senderId);
-        Optional<User> receiver = userRepository.findById(receiverId);
-
-        if (sender.isEmpty() || receiver.isEmpty()) {
+        // Validate sender existence
+        if (!userRepository.existsById(senderId)) {
             return "Sender or Receiver not found";
         }
 
-        User senderUser = sender.get();
-        User receiverUser = receiver.get();
+        // Remove the pending request and add the sender as a friend, only if the request exists
+        Query receiverWithRequest = identityOf(new Query(
+                Criteria.where("id").is(receiverId).and("pendingFriendRequests").is(senderId)));
+        User receiver = mongoTemplate.findAndModify(receiverWithRequest,
+                new Update().pull("pendingFriendRequests", senderId).addToSet("friends", senderId), User.class);
 
-        // Check if the request exists
-        if (!receiverUser.getPendingFriendRequests().contains(senderId)) {
-            return "Friend request not found";
+        if (receiver == null) {
+            return userRepository.existsById(receiverId) ? "Friend request not found" : "Sender or Receiver not found";
         }
 
-        // Remove the friend request
-        receiverUser.getPendingFriendRequests().remove(senderId);
+        // Add the receiver to the sender's friend list
+        User sender = mongoTemplate.findAndModify(identityOf(new Query(Criteria.where("id").is(senderId))),
+                new Update().addToSet("friends", receiverId), User.class);
 
-        // Add each user to the other's friend list
-        senderUser.getFriends().add(receiverId);
-        receiverUser.getFriends().add(senderId);
-
-        // Save the updated users
-        userRepository.save(senderUser);
-        userRepository.save(receiverUser);
+        userService.evictUser(receiver);
+        if (sender != null) {
+            userService.evictUser(sender);
+        }
 
         return "Friend request accepted";
     }
 
+    // Restricts the returned document to the fields needed for cache eviction
+    private static Query identityOf(Query query) {
+        query.fields().include("name", "email");
+        return query;
+    }
+
     // Get the friend list for a user
     public List<User> getFriendList(String userId) {
         Optional<User> user = userRepository.findById(userId);
         List<User> friendDetails = new ArrayList<>();
 
         if (user.isPresent()) {
-            for (String friendId : user.get().getFriends()) {
-                Optional<User> friend = userRepository.findById(friendId);
-                friend.ifPresent(friendDetails::add);  // Arkadaşın bilgilerini listeye ekle
+            List<String> friendIds = user.get().getFriends();
+            Map<String, User> friendsById = new HashMap<>();
+            // One $in query per chunk instead of one findById per friend, loading only id, name and e-mail
+            for (int from = 0; from < friendIds.size(); from += UserService.BATCH_SIZE) {
+                List<String> chunk = friendIds.subList(from, Math.min(from + UserService.BATCH_SIZE, friendIds.size()));
+                userRepository.findProfilesByIdIn(chunk).forEach(friend -> friendsById.put(friend.getId(), friend));
+            }
+            for (String friendId : friendIds) {
+                User friend = friendsById.get(friendId);
+                if (friend != null) {
+                    friendDetails.add(friend);  // Arkadaşın bilgilerini listeye ekle
+                }
             }
         }
         return friendDetails;
@@ -102,16 +123,21 @@ public class FriendRequestService {
         List<String> friendNames = new ArrayList<>();
 
         if (user.isPresent()) {
-            for (String friendId : user.get().getFriends()) {
-                Optional<User> friend = userRepository.findById(friendId);
-                if (friend.isPresent()) {
-                    friendNames.add(friend.get().getName());  // Arkadaşın adını ekle
-                }
-            }
+            // Resolved in batches, with only id and name loaded
+            friendNames.addAll(userService.getUserNamesByIds(user.get().getFriends()).values());
         }
         return friendNames;
     }
 
+    // Friend IDs mapped to names, in friend list order (cached names, batched projection for the rest)
+    public Map<String, String> getFriendNamesById(String userId) {
+        Optional<User> user = userRepository.findById(userId);
+        if (user.isEmpty()) {
+            return Map.of();
+        }
+        return userService.getUserNamesByIds(user.get().getFriends());
+    }
+
     public List<String> getFriendListWithIds(String userId) {
         Optional<User> user = userRepository.findById(userId);
         List<String> friendIds = new ArrayList<>();
@@ -0,0 +1,83 @@
+package com.example.demo.Services;
+
+import com.example.demo.model.InboxEntry;
+import com.example.demo.model.Message;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Picks the delivery strategy for a group by its member count: groups with up to
+// chat.fanout.threshold members use chat.fanout.small-groups, larger groups use
+// chat.fanout.large-groups. Small groups default to fan-out-on-read, where a send is a single write
+// and reading the group history stays cheap. Large groups default to fan-out-on-write: the send
+// copies the message into every member's inbox in background batches, so members read every such
+// group from a single inbox (GET /groups/inbox) at a cost that does not grow with the group.
+// Either size class can be set to "read" or "inbox".
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class GroupDelivery {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private Pagination pagination;
+
+    @Value("${chat.fanout.threshold:500}")
+    private int threshold;
+
+    private final GroupDeliveryStrategy smallGroups;
+    private final GroupDeliveryStrategy largeGroups;
+
+    public GroupDelivery(List<GroupDeliveryStrategy> strategies,
+                         @Value("${chat.fanout.small-groups:" + FanOutOnReadDelivery.NAME + "}") String smallGroups,
+                         @Value("${chat.fanout.large-groups:" + InboxFanOutDelivery.NAME + "}") String largeGroups) {
+        Map<String, GroupDeliveryStrategy> byName = strategies.stream()
+                .collect(Collectors.toMap(GroupDeliveryStrategy::name, Function.identity()));
+        this.smallGroups = lookup(byName, smallGroups);
+        this.largeGroups = lookup(byName, largeGroups);
+    }
+
+    // How a group's messages currently reach its members
+    public record Route(String groupId, int memberCount, String strategy) {}
+
+    public GroupDeliveryStrategy strategyFor(int memberCount) {
+        return memberCount <= threshold ? smallGroups : largeGroups;
+    }
+
+    public void deliver(String groupId, Message message, List<String> memberIds) {
+        strategyFor(memberIds.size()).deliver(groupId, message, memberIds);
+    }
+
+    public Route routeOf(String groupId, int memberCount) {
+        return new Route(groupId, memberCount, strategyFor(memberCount).name());
+    }
+
+    // Retrieves a page of the user's inbox across all fan-out-on-write groups, oldest first
+    public List<InboxEntry> getInbox(String userId, String after, String before, Integer limit) {
+        Pagination.Cursor<ObjectId> cursor = pagination.of(after, before, limit);
+        Query query = new Query(Criteria.where("userId").is(userId)
+                .and("messageId").gt(cursor.after()).lt(cursor.before()))
+                .with(Sort.by(cursor.newestFirst() ? Sort.Direction.DESC : Sort.Direction.ASC, "messageId"))
+                .limit(cursor.pageable().getPageSize());
+        return cursor.chronological(mongoTemplate.find(query, InboxEntry.class));
+    }
+
+    private static GroupDeliveryStrategy lookup(Map<String, GroupDeliveryStrategy> byName, String name) {
+        GroupDeliveryStrategy strategy = byName.get(name);
+        if (strategy == null) {
+            throw new RuntimeException("Unknown group delivery strategy: " + name + " (available: " + byName.keySet() + ")");
+        }
+        return strategy;
+    }
+}
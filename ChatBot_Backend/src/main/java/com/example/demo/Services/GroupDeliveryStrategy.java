@@ -0,0 +1,21 @@
+package com.example.demo.Services;
+
+import com.example.demo.model.Message;
+
+import java.util.List;
+
+// How a group message reaches its members once it has been stored in group_messages.
+// Implementations are Spring beans, selected per group by GroupDelivery.
+public interface GroupDeliveryStrategy {
+
+    // Name used to select the strategy in chat.fanout.* properties
+    String name();
+
+    // Whether deliver() uses the member list; a group's members are only loaded on send when it does
+    default boolean needsMembers() {
+        return true;
+    }
+
+    // Called after the message is written; must not block the sender on per-member work
+    void deliver(String groupId, Message message, List<String> memberIds);
+}
@@ -1,9 +1,26 @@
 package com.example.demo.Services;
 
+import com.example.demo.Repository.GroupMessageRepository;
 import com.example.demo.Repository.GroupRepository;
 import com.example.demo.model.Group;
+import com.example.demo.model.GroupMessage;
 import com.example.demo.model.Message;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -12,58 +29,109 @@ import java.util.stream.Collectors;
 import com.example.demo.Repository.UserRepository;
 
 @Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class GroupService {
 
+    public static final String USER_GROUPS_CACHE = "userGroups";
+
     @Autowired
     private GroupRepository groupRepository;
     @Autowired
+    private GroupMessageRepository groupMessageRepository;
+    @Autowired
+    private Pagination pagination;
+    @Autowired
+    private MessagePushService messagePushService;
+    @Autowired
+    private MessageWriter messageWriter;
+    @Autowired
+    private MessageStamper messageStamper;
+    @Autowired
+    private ConversationSummaryService conversationSummaryService;
+    @Autowired
+    private GroupDelivery groupDelivery;
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
     private UserService userService;
 
     // Creates a new group with initial members
     public Group createGroup(Group group) {
-        if (group.getName() == null || group.getName().isEmpty()) {
-            throw new RuntimeException("Group name cannot be empty");
-        }
-
-        if (group.getMembers() == null || group.getMembers().isEmpty()) {
-            throw new RuntimeException("A group must have at least one member");
-        }
-
-        group.setCreatedAt(LocalDateTime.now());  // Set the creation time when the group is created
-        return groupRepository.save(group);
+        prepareNew(group);
+        Group saved = groupRepository.save(group);
+        evictUserGroups(saved.getMembers());
+        conversationSummaryService.membersAdded(saved.getId(), saved.getMembers());
+        return saved;
     }
 
-    // Adds a new member to an existing group
+    // Adds a new member to an existing group (a single conditional $addToSet)
     public Group addMember(String groupId, String memberId) {
-        Group group = groupRepository.findById(groupId)
-                .orElseThrow(() -> new RuntimeException("Group not found"));
+        Group group = mongoTemplate.findAndModify(withoutMember(groupId, memberId), addedMember(memberId),
+                FindAndModifyOptions.options().returnNew(true), Group.class);
 
-        if (!group.getMembers().contains(memberId)) {
-            group.getMembers().add(memberId);
-        } else {
+        if (group == null) {
+            if (!groupRepository.existsById(groupId)) {
+                throw new RuntimeException("Group not found");
+            }
             throw new RuntimeException("Member already exists in the group");
         }
 
-        return groupRepository.save(group);
+        evictUserGroups(group.getMembers());  // Every member's cached copy lists the old members
+        conversationSummaryService.membersAdded(groupId, List.of(memberId));
+        return group;
     }
 
-    // Sends a message to all members of the group
+    // Sends a message to all members of the group: a single insert, independent of history size,
+    // then delivery to members with the strategy chosen for the group's size. Only the member count
+    // is read, plus the member list when the strategy writes per member.
     public Message sendMessage(String groupId, Message message) {
-        Group group = groupRepository.findById(groupId)
-                .orElseThrow(() -> new RuntimeException("Group not found"));
+        GroupDeliveryStrategy delivery = groupDelivery.strategyFor(memberCount(groupId));
+        List<String> members = delivery.needsMembers() ? membersOf(groupId) : List.of();
+
+        message.setId(new ObjectId().toHexString());  // Assigned here so it is known before the write
+        messagePushService.expectPublish(message.getId());
+        GroupMessage entity = new GroupMessage(groupId, message);  // Stamped by the writer
+        messageWriter.write(entity, () -> {
+            Message stored = entity.toMessage();
+            recentMessageCache.append(MessageStamper.groupKey(groupId), stored);
+            conversationSummaryService.groupMessageSent(groupId, stored);
+            delivery.deliver(groupId, stored, members);
+            messagePushService.publishGroup(groupId, stored);
+        });
+
+        // Without waiting for the write, the entity is stamped later on the writer thread
+        return messageWriter.waitsForWrite() ? entity.toMessage() : message;
+    }
 
-        group.getMessages().add(message);
-        groupRepository.save(group);
+    // Retrieves a page of the message history for the group, oldest first, with sequence numbers as cursors.
+    // Served from the recent message cache when it covers the page; the latest page populates it.
+    public List<Message> getMessageHistory(String groupId, String after, String before, Integer limit) {
+        String key = MessageStamper.groupKey(groupId);
+        Pagination.Cursor<Long> cursor = pagination.bySequence(after, before, limit);
+        List<Message> cached = recentMessageCache.page(key, cursor);  // Only groups that exist are cached
+        if (cached != null) {
+            return cached;
+        }
 
-        return message;
+        if (!groupRepository.existsById(groupId)) {
+            throw new RuntimeException("Group not found");
+        }
+        if (after == null && before == null) {
+            return recentMessageCache.loadLatest(key, cursor.pageable().getPageSize(),
+                    count -> readHistory(groupId, cursor, PageRequest.of(0, count, cursor.pageable().getSort())));
+        }
+        return readHistory(groupId, cursor, cursor.pageable());
     }
 
-    // Retrieves the message history for the group
-    public List<Message> getMessageHistory(String groupId) {
-        Group group = groupRepository.findById(groupId)
-                .orElseThrow(() -> new RuntimeException("Group not found"));
-
-        return group.getMessages();
+    private List<Message> readHistory(String groupId, Pagination.Cursor<Long> cursor, Pageable pageable) {
+        List<GroupMessage> page = groupMessageRepository.findPage(groupId, cursor.after(), cursor.before(), pageable);
+        return cursor.chronological(page).stream()
+                .map(GroupMessage::toMessage)
+                .collect(Collectors.toList());
     }
 
     // Retrieves the list of members for the group
@@ -74,12 +142,79 @@ public class GroupService {
         return group.getMembers();
     }
 
-    // Retrieves all groups that the user is a part of
+    // Whether the user belongs to the group: one exists query by ID, no member list is transferred
+    public boolean isMember(String groupId, String userId) {
+        return mongoTemplate.exists(member(groupId, userId), Group.class);
+    }
+
+    // The strategy that delivers the group's messages, by its current member count
+    public GroupDelivery.Route getDelivery(String groupId) {
+        return groupDelivery.routeOf(groupId, memberCount(groupId));
+    }
+
+    // Computed on the server with $size, so large member lists are not transferred
+    private int memberCount(String groupId) {
+        Document count = mongoTemplate.aggregate(Aggregation.newAggregation(Group.class,
+                        Aggregation.match(Criteria.where("id").is(groupId)),
+                        Aggregation.project().and(ArrayOperators.Size.lengthOfArray("members")).as("memberCount")),
+                Document.class).getUniqueMappedResult();
+        if (count == null) {
+            throw new RuntimeException("Group not found");
+        }
+        return count.getInteger("memberCount");
+    }
+
+    private List<String> membersOf(String groupId) {
+        Query byId = new Query(Criteria.where("id").is(groupId));
+        byId.fields().include("members");
+        Group group = mongoTemplate.findOne(byId, Group.class);
+        if (group == null) {
+            throw new RuntimeException("Group not found");
+        }
+        return group.getMembers();
+    }
+
+    // Retrieves all groups that the user is a part of (cached until the user's memberships change)
+    @Cacheable(USER_GROUPS_CACHE)
     public List<Group> getUserGroups(String userId) {
-        List<Group> allGroups = groupRepository.findAll();  // Fetch all groups
-        return allGroups.stream()
-                .filter(group -> group.getMembers().contains(userId))  // Filter groups where the user is a member
-                .collect(Collectors.toList());
+        return groupRepository.findByMember(userId);
+    }
+
+    // Group creation and membership queries, shared with the reactive path
+
+    // Validates a group to be created and sets its creation time
+    static void prepareNew(Group group) {
+        if (group.getName() == null || group.getName().isEmpty()) {
+            throw new RuntimeException("Group name cannot be empty");
+        }
+
+        if (group.getMembers() == null || group.getMembers().isEmpty()) {
+            throw new RuntimeException("A group must have at least one member");
+        }
+
+        group.setCreatedAt(LocalDateTime.now());  // Set the creation time when the group is created
+    }
+
+    static Query member(String groupId, String userId) {
+        return new Query(Criteria.where("id").is(groupId).and("members").is(userId));
+    }
+
+    static Query withoutMember(String groupId, String memberId) {
+        Query groupWithoutMember = new Query(Criteria.where("id").is(groupId).and("members").ne(memberId));
+        groupWithoutMember.fields().exclude("messages");  // Legacy embedded history of unmigrated groups
+        return groupWithoutMember;
+    }
+
+    static Update addedMember(String memberId) {
+        return new Update().addToSet("members", memberId);
+    }
+
+    // Drops cached group lists of the given users after a membership change
+    private void evictUserGroups(List<String> userIds) {
+        Cache cache = cacheManager.getCache(USER_GROUPS_CACHE);
+        if (cache != null) {
+            userIds.forEach(cache::evict);
+        }
     }
 
 }
\ No newline at end of file
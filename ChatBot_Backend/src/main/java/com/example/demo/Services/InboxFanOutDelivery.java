@@ -0,0 +1,139 @@
+package com.example.demo.Services;
+
+import com.example.demo.model.InboxEntry;
+import com.example.demo.model.Message;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Fan-out-on-write: copies each group message into every member's inbox, so reading is one
+// range scan of the member's own entries regardless of how many groups they are in.
+//
+// Members are split into batches of chat.fanout.batch-size, each written with one unordered
+// insertMany on a dedicated pool, so the sender never waits for the per-member writes. When the
+// pool's queue is full the sender waits up to chat.fanout.enqueue-timeout-ms for room, which slows
+// senders of a backlogged node down a little; a batch that still finds no room is dropped (counted
+// in chat.inbox.dropped and logged) rather than holding the sender any longer: the message itself is
+// already stored and stays readable in the group history.
+// Entries expire 30 days after the message was sent (TTL index on sentAt).
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class InboxFanOutDelivery implements GroupDeliveryStrategy {
+
+    public static final String NAME = "inbox";
+
+    private static final int DUPLICATE_KEY = 11000;  // Entry already delivered
+
+    private static final Logger log = LoggerFactory.getLogger(InboxFanOutDelivery.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${chat.fanout.batch-size:500}")
+    private int batchSize;
+
+    @Value("${chat.fanout.enqueue-timeout-ms:200}")
+    private long enqueueTimeoutMs;
+
+    private final ThreadPoolExecutor executor;
+    private final Counter entriesWritten;
+    private final Counter entriesDropped;
+
+    public InboxFanOutDelivery(@Value("${chat.fanout.threads:4}") int threads,
+                               @Value("${chat.fanout.queue-capacity:10000}") int queueCapacity,
+                               MeterRegistry meterRegistry) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "inbox-fanout");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.entriesWritten = meterRegistry.counter("chat.inbox.entries.written");
+        this.entriesDropped = meterRegistry.counter("chat.inbox.dropped");
+        meterRegistry.gaugeCollectionSize("chat.inbox.queue.size", Tags.empty(),
+                executor.getQueue());
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public void deliver(String groupId, Message message, List<String> memberIds) {
+        for (int from = 0; from < memberIds.size(); from += batchSize) {
+            List<String> batch = memberIds.subList(from, Math.min(from + batchSize, memberIds.size()));
+            Runnable write = () -> writeBatch(groupId, message, batch);
+            try {
+                executor.execute(write);
+            } catch (RejectedExecutionException e) {
+                if (!waitForRoom(write)) {
+                    entriesDropped.increment(batch.size());
+                    log.warn("Inbox fan-out queue is full, dropped message {} for {} members of group {}",
+                            message.getId(), batch.size(), groupId);
+                }
+            }
+        }
+    }
+
+    // All threads are busy once the queue is full, so a queued batch is picked up by one of them
+    private boolean waitForRoom(Runnable write) {
+        if (executor.isShutdown()) {
+            return false;
+        }
+        try {
+            return executor.getQueue().offer(write, enqueueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void writeBatch(String groupId, Message message, List<String> memberIds) {
+        List<InboxEntry> entries = memberIds.stream()
+                .map(memberId -> new InboxEntry(memberId, groupId, message))
+                .collect(Collectors.toList());
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, InboxEntry.class)
+                    .insert(entries)
+                    .execute();
+            entriesWritten.increment(entries.size());
+        } catch (BulkOperationException e) {
+            // Unordered: every entry without an error was written
+            entriesWritten.increment(e.getResult().getInsertedCount());
+            if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+                log.error("Inbox fan-out of message {} to group {} failed for {} members",
+                        message.getId(), groupId, e.getErrors().size(), e);
+            }
+        } catch (RuntimeException e) {
+            log.error("Inbox fan-out of message {} to {} members of group {} failed",
+                    message.getId(), memberIds.size(), groupId, e);
+        }
+    }
+
+    // Lets queued batches finish before the application context closes
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Inbox fan-out did not finish within 10s, {} batches dropped", executor.shutdownNow().size());
+        }
+    }
+}
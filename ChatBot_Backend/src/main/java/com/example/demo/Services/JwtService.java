@@ -0,0 +1,64 @@
+package com.example.demo.Services;
+
+import com.example.demo.model.User;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+// Issues and validates stateless HS256 access tokens. Validation is a signature check and needs
+// no database access. With an empty chat.auth.jwt-secret a random key is generated at startup,
+// so tokens do not survive a restart and are not accepted by other instances.
+@Service
+public class JwtService {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtService.class);
+
+    private final Key key;
+    private final JwtParser parser;
+    private final Duration ttl;
+
+    public JwtService(@Value("${chat.auth.jwt-secret:}") String secret,
+                      @Value("${chat.auth.token-ttl-minutes:60}") long ttlMinutes) {
+        if (secret.isEmpty()) {
+            log.warn("chat.auth.jwt-secret is not set; using a random key for this instance");
+            this.key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        } else {
+            this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));  // At least 32 bytes
+        }
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+    }
+
+    // Token for the user, with the user ID as subject
+    public String issue(User user) {
+        Instant now = Instant.now();
+        return Jwts.builder()
+                .setSubject(user.getId())
+                .claim("name", user.getName())
+                .setIssuedAt(Date.from(now))
+                .setExpiration(Date.from(now.plus(ttl)))
+                .signWith(key)
+                .compact();
+    }
+
+    // User ID of a valid, unexpired token
+    public String userIdOf(String token) {
+        try {
+            return parser.parseClaimsJws(token).getBody().getSubject();
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new RuntimeException("Invalid token", e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo.Services;
+
+import com.example.demo.model.GroupMessage;
+import com.example.demo.model.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Exports message history as newline-delimited JSON, one message per line in send order (sequence
+// order within a conversation or group, message ID order across chats).
+// Messages are read through a MongoDB cursor and written as they arrive, so memory use does not
+// depend on the size of the export.
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class MessageExportService {
+
+    private static final int CURSOR_BATCH_SIZE = 500;
+    private static final byte NEWLINE = '\n';
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Every direct message the user sent or received
+    public void exportUser(String userId, OutputStream out) {
+        Query query = new Query(new Criteria().orOperator(
+                Criteria.where("senderId").is(userId),
+                Criteria.where("receiverId").is(userId)));
+        write(query, Message.class, Function.identity(), out);
+    }
+
+    // The conversation between two users
+    public void exportConversation(String userId, String otherUserId, OutputStream out) {
+        Query query = new Query(Criteria.where("conversationId").is(Message.conversationIdOf(userId, otherUserId)))
+                .with(Sort.by("sequence"));
+        write(query, Message.class, Function.identity(), out);
+    }
+
+    // Every message of a group
+    public void exportGroup(String groupId, OutputStream out) {
+        write(new Query(Criteria.where("groupId").is(groupId)).with(Sort.by("sequence")),
+                GroupMessage.class, GroupMessage::toMessage, out);
+    }
+
+    // Every message in the database: all direct messages, then all group messages (these lines
+    // carry the groupId they belong to)
+    public void exportAll(OutputStream out) {
+        write(new Query(), Message.class, Function.identity(), out);
+        write(new Query(), GroupMessage.class, Function.identity(), out);
+    }
+
+    private <T> void write(Query query, Class<T> type, Function<T, ?> toMessage, OutputStream out) {
+        if (!query.isSorted()) {
+            query.with(Sort.by("id"));
+        }
+        query.cursorBatchSize(CURSOR_BATCH_SIZE);
+        try (Stream<T> documents = mongoTemplate.stream(query, type)) {
+            Iterator<T> iterator = documents.iterator();
+            while (iterator.hasNext()) {
+                out.write(objectMapper.writeValueAsBytes(toMessage.apply(iterator.next())));
+                out.write(NEWLINE);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Message export failed", e);
+        }
+    }
+}
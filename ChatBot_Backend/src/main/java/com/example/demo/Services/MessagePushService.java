@@ -0,0 +1,314 @@
+package com.example.demo.Services;
+
+import com.example.demo.model.ConversationSummary;
+import com.example.demo.model.Message;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.websocket.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Pushes newly saved messages to connected WebSocket sessions, per user and per subscribed group.
+//
+// Every session has its own bounded queue of outgoing frames, drained by a virtual thread while
+// frames are waiting, so publishing never blocks and a stalled client only holds up its own queue.
+// A send that cannot complete within the send time limit fails, and a session that fails a send or
+// overflows its queue is closed (the client re-syncs through the paginated history endpoints).
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class MessagePushService {
+
+    private static final Logger log = LoggerFactory.getLogger(MessagePushService.class);
+
+    // Tomcat's per-session limit for a blocking send, in milliseconds
+    private static final String BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${chat.push.send-time-limit-ms:5000}")
+    private long sendTimeLimitMs;
+
+    @Value("${chat.push.session-queue-capacity:256}")
+    private int sessionQueueCapacity;
+
+    @Value("${chat.cluster.change-streams.enabled:false}")
+    private boolean clusterFanOut;
+
+    // Messages saved by this node while cluster fan-out is on: ID -> whether it has been pushed. Both the
+    // send path and the change stream event claim the push, so whichever comes first pushes it once.
+    private final Cache<String, Boolean> publishedHere = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .build();
+
+    private final Map<String, PushSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> sessionsByUser = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> sessionsByGroup = new ConcurrentHashMap<>();
+
+    private final ExecutorService drainers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("message-push-", 0).factory());
+
+    // Registers a newly connected session for the given user
+    public void register(String userId, WebSocketSession session) {
+        if (session instanceof NativeWebSocketSession nativeSession) {
+            Session endpoint = nativeSession.getNativeSession(Session.class);
+            if (endpoint != null) {
+                endpoint.getUserProperties().put(BLOCKING_SEND_TIMEOUT, sendTimeLimitMs);
+            }
+        }
+        sessions.put(session.getId(), new PushSession(session, userId, sessionQueueCapacity));
+        add(sessionsByUser, userId, session.getId());
+    }
+
+    // Removes a closed session from its user and every group it subscribed to
+    public void unregister(WebSocketSession session) {
+        PushSession pushSession = sessions.remove(session.getId());
+        if (pushSession == null) {
+            return;
+        }
+        remove(sessionsByUser, pushSession.userId, session.getId());
+        pushSession.groups.forEach(groupId -> remove(sessionsByGroup, groupId, session.getId()));
+        pushSession.queue.clear();
+    }
+
+    public void subscribeToGroup(String groupId, WebSocketSession session) {
+        PushSession pushSession = sessions.get(session.getId());
+        if (pushSession == null) {
+            return;
+        }
+        pushSession.groups.add(groupId);
+        add(sessionsByGroup, groupId, session.getId());
+        if (!sessions.containsKey(session.getId())) {
+            // Unregistered meanwhile, possibly before the group was recorded on the session
+            remove(sessionsByGroup, groupId, session.getId());
+        }
+    }
+
+    public void unsubscribeFromGroup(String groupId, WebSocketSession session) {
+        PushSession pushSession = sessions.get(session.getId());
+        if (pushSession != null) {
+            pushSession.groups.remove(groupId);
+        }
+        remove(sessionsByGroup, groupId, session.getId());
+    }
+
+    // Index sets are created and dropped inside compute calls on their key, so a session added to
+    // a set can never land in one that is concurrently being removed for being empty
+    private static void add(Map<String, Set<String>> index, String key, String sessionId) {
+        index.compute(key, (k, ids) -> {
+            Set<String> updated = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+            updated.add(sessionId);
+            return updated;
+        });
+    }
+
+    private static void remove(Map<String, Set<String>> index, String key, String sessionId) {
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(sessionId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    // Call before writing a message with a preassigned ID that will be published from this node, so
+    // its change stream event, which can arrive before the write call returns, is not pushed as well
+    public void expectPublish(String messageId) {
+        if (clusterFanOut) {
+            publishedHere.put(messageId, Boolean.FALSE);
+        }
+    }
+
+    // Delivers a direct message to the sender's and the receiver's sessions
+    public void publishDirect(Message message) {
+        if (claim(message.getId())) {
+            deliverDirect(message);
+        }
+    }
+
+    private void deliverDirect(Message message) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("type", "message");
+        payload.put("message", message);
+
+        dispatch(payload, () -> {
+            Set<String> targets = ConcurrentHashMap.newKeySet();
+            targets.addAll(sessionsByUser.getOrDefault(message.getReceiverId(), Set.of()));
+            targets.addAll(sessionsByUser.getOrDefault(message.getSenderId(), Set.of()));
+            return targets;
+        });
+    }
+
+    // Delivers a group message to every session subscribed to the group
+    public void publishGroup(String groupId, Message message) {
+        if (claim(message.getId())) {
+            deliverGroup(groupId, message);
+        }
+    }
+
+    // Delivers a message saved on any node, as seen on the change stream; groupId is null for direct
+    // messages. Messages already pushed by this node are skipped.
+    public void publishFromCluster(String groupId, Message message) {
+        if (!claim(message.getId())) {
+            return;
+        }
+        if (groupId == null) {
+            deliverDirect(message);
+        } else {
+            deliverGroup(groupId, message);
+        }
+    }
+
+    // Whether the caller should push the message: true for the first of the send path and the change
+    // stream event of a message expected here (the second one drops the entry), and for any message
+    // that is not (saved on another node, or with cluster fan-out off)
+    private boolean claim(String messageId) {
+        if (!clusterFanOut || messageId == null) {
+            return true;
+        }
+        ConcurrentMap<String, Boolean> published = publishedHere.asMap();
+        if (published.replace(messageId, Boolean.FALSE, Boolean.TRUE)) {
+            return true;
+        }
+        return published.remove(messageId) == null;
+    }
+
+    private void deliverGroup(String groupId, Message message) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("type", "group-message");
+        payload.put("groupId", groupId);
+        payload.put("message", message);
+
+        dispatch(payload, () -> sessionsByGroup.getOrDefault(groupId, Set.of()));
+    }
+
+    // Tells the other side of a direct chat (chatId = receiver's ID), or the group's subscribers, that userId is typing.
+    // Called by PresenceService once it has checked that userId takes part in the chat.
+    public void publishTyping(String userId, String chatType, String chatId) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("type", "typing");
+        payload.put("userId", userId);
+        if (ConversationSummary.GROUP.equals(chatType)) {
+            payload.put("groupId", chatId);
+            dispatch(payload, () -> sessionsByGroup.getOrDefault(chatId, Set.of()));
+        } else if (ConversationSummary.DIRECT.equals(chatType)) {
+            dispatch(payload, () -> sessionsByUser.getOrDefault(chatId, Set.of()));
+        }
+    }
+
+    private void dispatch(Map<String, Object> payload, Supplier<Collection<String>> targets) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+
+        TextMessage frame;
+        try {
+            frame = new TextMessage(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not serialize push payload", e);
+        }
+
+        for (String sessionId : targets.get()) {
+            PushSession pushSession = sessions.get(sessionId);
+            if (pushSession != null) {
+                pushSession.offer(frame);
+            }
+        }
+    }
+
+    // Drops the session and closes it off the caller's thread (closing writes a frame as well)
+    private void close(PushSession pushSession, String reason) {
+        log.debug("Closing push session {}: {}", pushSession.session.getId(), reason);
+        unregister(pushSession.session);
+        try {
+            drainers.execute(() -> {
+                try {
+                    pushSession.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+                } catch (IOException ignored) {
+                    // Already closed
+                }
+            });
+        } catch (RejectedExecutionException ignored) {
+            // Shutting down
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        drainers.shutdownNow();
+    }
+
+    private final class PushSession {
+
+        private final WebSocketSession session;
+        private final String userId;
+        private final Set<String> groups = ConcurrentHashMap.newKeySet();
+        private final BlockingQueue<TextMessage> queue;
+        // Set while a drainer owns the session; only the owner sends, so sends never overlap
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private PushSession(WebSocketSession session, String userId, int capacity) {
+            this.session = session;
+            this.userId = userId;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private void offer(TextMessage frame) {
+            if (!queue.offer(frame)) {
+                close(this, "outbound queue full");
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    drainers.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                do {
+                    TextMessage frame;
+                    while ((frame = queue.poll()) != null) {
+                        if (!session.isOpen()) {
+                            return;
+                        }
+                        session.sendMessage(frame);
+                    }
+                    draining.set(false);
+                    // A frame offered after the last poll but before the flag was cleared is ours to send
+                } while (!queue.isEmpty() && draining.compareAndSet(false, true));
+            } catch (Exception e) {
+                close(this, e.getMessage());
+            }
+        }
+    }
+}
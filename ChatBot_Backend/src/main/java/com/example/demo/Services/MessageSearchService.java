@@ -0,0 +1,142 @@
+package com.example.demo.Services;
+
+import com.example.demo.model.ConversationSummary;
+import com.example.demo.model.Group;
+import com.example.demo.model.GroupMessage;
+import com.example.demo.model.Message;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Full-text search over the direct messages a user sent or received and the messages of the
+// user's groups. The text indexes are prefixed by the chat ({conversationId, content} and
+// {groupId, content}, see TextIndexMigration), so every chat is searched with its own indexed query
+// (a compound text index needs an equality match on its prefix; $in over several chats cannot use
+// it). The queries run in parallel on a bounded pool, so latency follows the slowest chat rather
+// than the number of chats; when the pool's queue is full the request thread runs the query itself.
+//
+// Searched are every group the user belongs to and the user's chat.search.max-chats most recently
+// active direct conversations (from the chat list). Direct conversations older than that are not
+// searched; the limit is part of the /messages/search contract.
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class MessageSearchService {
+
+    // Deepest result position that can be paged to; deeper pages would rescan too many hits
+    private static final int MAX_RESULT_WINDOW = 1000;
+    private static final String SCORE = "score";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private GroupService groupService;
+    @Autowired
+    private Pagination pagination;
+    @Autowired
+    private ConversationSummaryService conversationSummaryService;
+
+    @Value("${chat.search.max-chats:50}")
+    private int maxChats;
+
+    private final ThreadPoolExecutor executor;
+
+    public MessageSearchService(@Value("${chat.search.threads:8}") int threads,
+                                @Value("${chat.search.queue-capacity:256}") int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "search");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // groupId is null for direct messages
+    public record SearchHit(Message message, String groupId, double score) {}
+
+    // Returns one page of hits, most relevant first
+    public List<SearchHit> search(String userId, String text, int page, Integer size) {
+        if (text == null || text.isBlank()) {
+            throw new RuntimeException("Search text cannot be empty");
+        }
+        int pageSize = pagination.pageSize(size);
+        int window = (Math.max(page, 0) + 1) * pageSize;
+        if (window > MAX_RESULT_WINDOW) {
+            return List.of();
+        }
+
+        // Each chat returns its best `window` hits; the merged list is then cut to the page
+        List<CompletableFuture<List<SearchHit>>> chats = new ArrayList<>();
+        for (String otherUserId : conversationSummaryService.recentChatIds(userId, ConversationSummary.DIRECT, maxChats)) {
+            Query query = textQuery(text, window)
+                    .addCriteria(Criteria.where("conversationId").is(Message.conversationIdOf(userId, otherUserId)));
+            chats.add(CompletableFuture.supplyAsync(
+                    () -> find(query, Message.class, message -> new SearchHit(message, null, 0)), executor));
+        }
+        for (Group group : groupService.getUserGroups(userId)) {
+            Query query = textQuery(text, window).addCriteria(Criteria.where("groupId").is(group.getId()));
+            chats.add(CompletableFuture.supplyAsync(() -> find(query, GroupMessage.class,
+                    message -> new SearchHit(message.toMessage(), message.getGroupId(), 0)), executor));
+        }
+
+        List<SearchHit> hits = new ArrayList<>();
+        for (CompletableFuture<List<SearchHit>> chat : chats) {
+            hits.addAll(join(chat));
+        }
+
+        return hits.stream()
+                .sorted(Comparator.comparingDouble(SearchHit::score).reversed())
+                .skip((long) window - pageSize)
+                .limit(pageSize)
+                .toList();
+    }
+
+    private static List<SearchHit> join(CompletableFuture<List<SearchHit>> chat) {
+        try {
+            return chat.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Search failed", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static Query textQuery(String text, int limit) {
+        return TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text))
+                .sortByScore()
+                .limit(limit);
+    }
+
+    // Reads raw documents so the text score can be taken from the projection
+    private <T> List<SearchHit> find(Query query, Class<T> type, Function<T, SearchHit> toHit) {
+        List<SearchHit> hits = new ArrayList<>();
+        for (Document document : mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(type))) {
+            SearchHit hit = toHit.apply(mongoTemplate.getConverter().read(type, document));
+            hits.add(new SearchHit(hit.message(), hit.groupId(), ((Number) document.get(SCORE)).doubleValue()));
+        }
+        return hits;
+    }
+}
@@ -2,35 +2,87 @@ package com.example.demo.Services;
 
 import com.example.demo.model.Message;
 import com.example.demo.Repository.MessageRepository;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 
 @Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class MessageService {
 
     @Autowired
     private MessageRepository messageRepository;
+    @Autowired
+    private Pagination pagination;
+    @Autowired
+    private MessagePushService messagePushService;
+    @Autowired
+    private MessageWriter messageWriter;
+    @Autowired
+    private MessageStamper messageStamper;
+    @Autowired
+    private ConversationSummaryService conversationSummaryService;
+    @Autowired
+    private RecentMessageCache recentMessageCache;
 
-    // Save a message to the database
+    // Save a message to the database. The writer stamps sentAt and sequence as it stores the message.
     public Message sendMessage(Message message) {
-        return messageRepository.save(message);
+        if (message.getSenderId() == null || message.getReceiverId() == null) {
+            throw new RuntimeException("Sender and receiver are required");
+        }
+        message.setConversationId(Message.conversationIdOf(message.getSenderId(), message.getReceiverId()));
+        message.setId(new ObjectId().toHexString());  // Assigned here so it is known before the write
+        messagePushService.expectPublish(message.getId());
+        // Without waiting for the write, the message is stamped later on the writer thread
+        Message reply = messageWriter.waitsForWrite() ? message : unstamped(message);
+        messageWriter.write(message, () -> {
+            recentMessageCache.append(message.getConversationId(), message);
+            conversationSummaryService.directMessageSent(message);
+            messagePushService.publishDirect(message);
+        });
+        return reply;
+    }
+
+    private static Message unstamped(Message message) {
+        Message copy = new Message(message.getSenderId(), message.getReceiverId(), message.getContent(), message.getTimestamp());
+        copy.setId(message.getId());
+        copy.setConversationId(message.getConversationId());
+        return copy;
     }
 
-    // Get messages by receiver ID
-    public List<Message> getMessages(String receiverId) {
-        return messageRepository.findByReceiverId(receiverId);
+    // Get a page of messages by receiver ID
+    public List<Message> getMessages(String receiverId, String after, String before, Integer limit) {
+        Pagination.Cursor<ObjectId> cursor = pagination.of(after, before, limit);
+        return cursor.chronological(messageRepository.findReceivedPage(
+                receiverId, cursor.after(), cursor.before(), cursor.pageable()));
     }
 
-    // Get all messages from the database
-    public List<Message> getAllMessages() {
-        return messageRepository.findAll();
+    // Get a page of all messages from the database
+    public List<Message> getAllMessages(String after, String before, Integer limit) {
+        Pagination.Cursor<ObjectId> cursor = pagination.of(after, before, limit);
+        return cursor.chronological(messageRepository.findPage(
+                cursor.after(), cursor.before(), cursor.pageable()));
     }
 
-    public List<Message> getConversation(String senderId, String receiverId) {
-        return messageRepository.findBySenderIdAndReceiverIdOrReceiverIdAndSenderId(
-                senderId, receiverId, senderId, receiverId
-        );
+    // Get a page of the conversation between two users, oldest first, with sequence numbers as cursors.
+    // Served from the recent message cache when it covers the page; the latest page populates it.
+    public List<Message> getConversation(String senderId, String receiverId, String after, String before, Integer limit) {
+        String conversationId = Message.conversationIdOf(senderId, receiverId);
+        Pagination.Cursor<Long> cursor = pagination.bySequence(after, before, limit);
+        List<Message> cached = recentMessageCache.page(conversationId, cursor);
+        if (cached != null) {
+            return cached;
+        }
+        if (after == null && before == null) {
+            return recentMessageCache.loadLatest(conversationId, cursor.pageable().getPageSize(),
+                    count -> cursor.chronological(messageRepository.findConversationPage(conversationId,
+                            cursor.after(), cursor.before(), PageRequest.of(0, count, cursor.pageable().getSort()))));
+        }
+        return cursor.chronological(messageRepository.findConversationPage(
+                conversationId, cursor.after(), cursor.before(), cursor.pageable()));
     }
 }
\ No newline at end of file
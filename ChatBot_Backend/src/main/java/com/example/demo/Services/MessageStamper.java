@@ -0,0 +1,136 @@
+package com.example.demo.Services;
+
+import com.example.demo.model.GroupMessage;
+import com.example.demo.model.Message;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Server-side ordering data for new messages: a send time that never goes backwards on this node,
+// and a per-conversation sequence number kept in the message_sequences collection, which is
+// strictly increasing across all nodes. Message history is paged by sequence.
+//
+// MessageWriter stamps messages right before inserting them, taking the numbers for all messages of
+// a chat in a batch with a single counter update. Numbers of messages that were definitely not
+// stored are given back while no later number has been taken, so a failed write normally leaves no
+// gap; otherwise (or when the outcome of a write is unknown) the gap stays.
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class MessageStamper {
+
+    public static final String SEQUENCES_COLLECTION = "message_sequences";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // Shared by every send path of this node, including the reactive one, which has no MessageStamper bean
+    private static final AtomicLong lastMillis = new AtomicLong();
+
+    public static Instant now() {
+        return Instant.ofEpochMilli(lastMillis.accumulateAndGet(System.currentTimeMillis(), Math::max));
+    }
+
+    // Sets sequence and sentAt on Message and GroupMessage entities, in list order within each chat
+    public void stamp(List<?> entities) {
+        byChat(entities).forEach((key, messages) -> {
+            Document counter = mongoTemplate.findAndModify(counter(key), take(messages.size()),
+                    FindAndModifyOptions.options().upsert(true).returnNew(true),
+                    Document.class, SEQUENCES_COLLECTION);
+            long next = ((Number) counter.get("sequence")).longValue() - messages.size() + 1;
+            for (Object message : messages) {
+                stamp(message, next++, now());
+            }
+        });
+    }
+
+    // Gives back the sequence numbers of entities that were not stored, newest first, as long as
+    // each one is still the last number taken in its chat
+    public void release(List<?> entities) {
+        byChat(entities).forEach((key, messages) -> {
+            List<Long> sequences = new ArrayList<>();
+            for (Object message : messages) {
+                sequences.add(sequenceOf(message));
+            }
+            sequences.sort(Comparator.reverseOrder());
+            for (Long sequence : sequences) {
+                if (sequence == null
+                        || mongoTemplate.updateFirst(lastTaken(key, sequence), giveBack(), SEQUENCES_COLLECTION)
+                        .getModifiedCount() == 0) {
+                    return;
+                }
+            }
+        });
+    }
+
+    // The chat whose sequence an entity belongs to: the conversation ID or the group key
+    public static String sequenceKey(Object entity) {
+        if (entity instanceof Message message) {
+            return message.getConversationId();
+        }
+        if (entity instanceof GroupMessage groupMessage) {
+            return groupKey(groupMessage.getGroupId());
+        }
+        throw new IllegalArgumentException("Not a message: " + entity.getClass().getName());
+    }
+
+    public static String groupKey(String groupId) {
+        return "group:" + groupId;
+    }
+
+    static void stamp(Object entity, long sequence, Instant sentAt) {
+        if (entity instanceof Message message) {
+            message.setSequence(sequence);
+            message.setSentAt(sentAt);
+        } else if (entity instanceof GroupMessage groupMessage) {
+            groupMessage.setSequence(sequence);
+            groupMessage.setSentAt(sentAt);
+        }
+    }
+
+    // Counter document queries, shared with the reactive send path
+
+    static Query counter(String key) {
+        return new Query(Criteria.where("_id").is(key));
+    }
+
+    static Update take(long count) {
+        return new Update().inc("sequence", count);
+    }
+
+    static Query lastTaken(String key, long sequence) {
+        return new Query(Criteria.where("_id").is(key).and("sequence").is(sequence));
+    }
+
+    static Update giveBack() {
+        return new Update().inc("sequence", -1L);
+    }
+
+    private static Long sequenceOf(Object entity) {
+        if (entity instanceof Message message) {
+            return message.getSequence();
+        }
+        return ((GroupMessage) entity).getSequence();
+    }
+
+    private static Map<String, List<Object>> byChat(List<?> entities) {
+        Map<String, List<Object>> byChat = new LinkedHashMap<>();
+        for (Object entity : entities) {
+            byChat.computeIfAbsent(sequenceKey(entity), key -> new ArrayList<>()).add(entity);
+        }
+        return byChat;
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.demo.Services;
+
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Persists new messages (direct and group). Callers assign message ids up front; sequence and
+// sentAt are stamped here, right before the insert, so they follow the order messages are written in.
+//
+// In "sync" mode (the default) each message is inserted on the calling thread. In "batched" mode
+// messages go into a bounded queue and a background writer inserts them with one unordered bulk insert
+// per entity type, flushing when chat.ingest.batch-size messages are waiting or chat.ingest.flush-interval-ms
+// has passed. Each message succeeds or fails on its own: a duplicate key on its preassigned id means it
+// is already stored, any other write error fails only that message. With chat.ingest.ack=flush the
+// caller still waits until its message is written; with chat.ingest.ack=enqueue it returns as soon as
+// the message is queued, and a message that fails is logged and lost. Post-write callbacks run on
+// chat.ingest.callback-threads single-threaded stripes chosen by chat, so they keep each chat's order
+// without holding up the writer; when a stripe's queue is full the writer waits for it. Queued messages
+// and callbacks are drained before shutdown completes.
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class MessageWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageWriter.class);
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private MessageStamper messageStamper;
+
+    @Value("${chat.ingest.mode:sync}")
+    private String mode;
+
+    @Value("${chat.ingest.ack:flush}")
+    private String ack;
+
+    @Value("${chat.ingest.batch-size:500}")
+    private int batchSize;
+
+    @Value("${chat.ingest.flush-interval-ms:20}")
+    private long flushIntervalMs;
+
+    @Value("${chat.ingest.queue-capacity:50000}")
+    private int queueCapacity;
+
+    @Value("${chat.ingest.enqueue-timeout-ms:1000}")
+    private long enqueueTimeoutMs;
+
+    @Value("${chat.ingest.ack-timeout-ms:5000}")
+    private long ackTimeoutMs;
+
+    @Value("${chat.ingest.callback-threads:2}")
+    private int callbackThreads;
+
+    @Value("${chat.ingest.callback-queue-capacity:10000}")
+    private int callbackQueueCapacity;
+
+    private BlockingQueue<Pending> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+    private List<ThreadPoolExecutor> callbackStripes = List.of();
+
+    private record Pending(Object entity, Runnable onWritten, CompletableFuture<Void> written) {}
+
+    @PostConstruct
+    public void start() {
+        if (!isBatched()) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        meterRegistry.gaugeCollectionSize("chat.ingest.queue.size", Tags.empty(), queue);
+        List<ThreadPoolExecutor> stripes = new ArrayList<>(callbackThreads);
+        for (int i = 0; i < Math.max(1, callbackThreads); i++) {
+            stripes.add(new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(callbackQueueCapacity), runnable -> {
+                        Thread thread = new Thread(runnable, "message-written");
+                        thread.setDaemon(true);
+                        return thread;
+                    }, MessageWriter::waitForRoom));
+        }
+        callbackStripes = stripes;
+        running = true;
+        writerThread = new Thread(this::writeLoop, "message-writer");
+        writerThread.start();
+    }
+
+    public boolean isBatched() {
+        return "batched".equalsIgnoreCase(mode);
+    }
+
+    // Whether write returns only after the message is stored (and stamped). Otherwise the entity is
+    // stamped by the writer thread later and callers must not read it after write.
+    public boolean waitsForWrite() {
+        return !isBatched() || "flush".equalsIgnoreCase(ack);
+    }
+
+    // Stamps and persists the message and runs onWritten once it is stored
+    public void write(Object entity, Runnable onWritten) {
+        if (!isBatched()) {
+            messageStamper.stamp(List.of(entity));
+            try {
+                mongoTemplate.insert(entity);
+            } catch (DataIntegrityViolationException e) {
+                messageStamper.release(List.of(entity));  // Rejected by the server, so not stored
+                throw e;
+            }
+            written(entity.getClass(), 1);
+            // The message is stored: a failing callback must not turn the send into an error
+            runCallback(onWritten);
+            return;
+        }
+
+        Pending pending = new Pending(entity, onWritten, new CompletableFuture<>());
+        try {
+            if (!running || !queue.offer(pending, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("Message queue is full, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while queueing message", e);
+        }
+
+        if ("flush".equalsIgnoreCase(ack)) {
+            try {
+                pending.written().get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for message to be saved", e);
+            } catch (ExecutionException | TimeoutException e) {
+                throw new RuntimeException("Message could not be saved", e);
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Waits for more messages until the batch is full or the flush interval since the first one ran out
+    private void fillBatch(List<Pending> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        Map<Class<?>, List<Pending>> byType = new LinkedHashMap<>();
+        for (Pending pending : batch) {
+            byType.computeIfAbsent(pending.entity().getClass(), type -> new ArrayList<>()).add(pending);
+        }
+
+        byType.forEach((type, pendings) -> {
+            Map<Integer, BulkWriteError> failed = insert(type, pendings);
+            if (failed == null) {
+                return;
+            }
+            written(type, pendings.size() - failed.size());
+            meterRegistry.summary("chat.ingest.batch.size", "type", type.getSimpleName()).record(pendings.size());
+            for (int index = 0; index < pendings.size(); index++) {
+                Pending pending = pendings.get(index);
+                BulkWriteError error = failed.get(index);
+                if (error != null) {
+                    pending.written().completeExceptionally(
+                            new RuntimeException("Message could not be saved: " + error.getMessage()));
+                    continue;
+                }
+                pending.written().complete(null);
+                callbackStripe(pending.entity()).execute(() -> runCallback(pending.onWritten()));
+            }
+        });
+    }
+
+    // Inserts the batch unordered and returns the write errors by batch index; duplicate keys are not
+    // errors, since every message has its id before it is queued. Returns null (and fails the whole
+    // batch) when the outcome of the individual inserts is unknown.
+    private Map<Integer, BulkWriteError> insert(Class<?> type, List<Pending> pendings) {
+        List<Object> entities = pendings.stream().map(Pending::entity).toList();
+        try {
+            messageStamper.stamp(entities);
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type)
+                    .insert(entities)
+                    .execute();
+            return Map.of();
+        } catch (BulkOperationException e) {
+            Map<Integer, BulkWriteError> failed = new HashMap<>();
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    failed.put(error.getIndex(), error);
+                }
+            }
+            if (!failed.isEmpty()) {
+                messageStamper.release(failed.keySet().stream().map(entities::get).toList());
+                log.error("Failed to write {} of a batch of {} {} messages: {}",
+                        failed.size(), pendings.size(), type.getSimpleName(), failed.values().iterator().next().getMessage());
+            }
+            return failed;
+        } catch (RuntimeException e) {
+            log.error("Failed to write batch of {} {} messages", pendings.size(), type.getSimpleName(), e);
+            pendings.forEach(pending -> pending.written().completeExceptionally(e));
+            return null;
+        }
+    }
+
+    private static void runCallback(Runnable onWritten) {
+        try {
+            onWritten.run();
+        } catch (RuntimeException e) {
+            log.warn("Post-write callback failed", e);
+        }
+    }
+
+    // Callbacks of one chat always go to the same single-threaded stripe, so they run in write order
+    private ThreadPoolExecutor callbackStripe(Object entity) {
+        String chat = String.valueOf(MessageStamper.sequenceKey(entity));
+        return callbackStripes.get(Math.floorMod(chat.hashCode(), callbackStripes.size()));
+    }
+
+    // A full stripe makes the writer wait instead of reordering the chat's callbacks (after
+    // shutdown, the callback runs on the calling thread)
+    private static void waitForRoom(Runnable callback, ThreadPoolExecutor stripe) {
+        if (stripe.isShutdown()) {
+            callback.run();
+            return;
+        }
+        try {
+            stripe.getQueue().put(callback);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            callback.run();
+        }
+    }
+
+    // Counts stored messages per entity type (Message for direct, GroupMessage for group messages)
+    private void written(Class<?> type, int count) {
+        meterRegistry.counter("chat.messages.written", "type", type.getSimpleName()).increment(count);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;  // The writer notices within one flush interval and drains the queue
+        writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        for (ThreadPoolExecutor stripe : callbackStripes) {
+            stripe.shutdown();
+        }
+        for (ThreadPoolExecutor stripe : callbackStripes) {
+            stripe.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
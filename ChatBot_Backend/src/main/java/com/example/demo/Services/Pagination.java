@@ -0,0 +1,95 @@
+package com.example.demo.Services;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Keyset pagination: every page is one bounded index range scan. Conversation and group history is
+// paged by message sequence number (the order messages were written in), so "after"/"before"
+// cursors there are sequence numbers. Listings across chats (received, all, inbox) are paged by
+// message ID, which grows monotonically, so their cursors are message ids.
+@Component
+public class Pagination {
+
+    // Cursor for "after the very beginning", i.e. the oldest messages first
+    public static final String START = "000000000000000000000000";
+
+    // Sequence cursor for "after the very beginning"; sequence numbers start at 1
+    public static final long FIRST_SEQUENCE = 0L;
+
+    private static final ObjectId MIN_ID = new ObjectId(START);
+    private static final ObjectId MAX_ID = new ObjectId("ffffffffffffffffffffffff");
+
+    @Value("${chat.pagination.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${chat.pagination.max-page-size:200}")
+    private int maxPageSize;
+
+    // Builds a message ID cursor window. Without an "after" cursor the newest messages (optionally
+    // older than "before") are returned; with one, the messages directly following it are returned.
+    public Cursor<ObjectId> of(String after, String before, Integer limit) {
+        return new Cursor<>(
+                after == null ? MIN_ID : parse(after),
+                before == null ? MAX_ID : parse(before),
+                PageRequest.of(0, pageSize(limit), sort(after == null, "id")),
+                after == null);
+    }
+
+    // Same as of(), over sequence numbers within one conversation or group
+    public Cursor<Long> bySequence(String after, String before, Integer limit) {
+        return new Cursor<>(
+                after == null ? FIRST_SEQUENCE : parseSequence(after),
+                before == null ? Long.MAX_VALUE : parseSequence(before),
+                PageRequest.of(0, pageSize(limit), sort(after == null, "sequence")),
+                after == null);
+    }
+
+    private static Sort sort(boolean newestFirst, String property) {
+        return Sort.by(newestFirst ? Sort.Direction.DESC : Sort.Direction.ASC, property);
+    }
+
+    // Requested page size, or the default, capped at the maximum
+    public int pageSize(Integer limit) {
+        return limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+    }
+
+    // A malformed cursor is the client's mistake: 400 rather than 500
+    private static ObjectId parse(String cursor) {
+        if (!ObjectId.isValid(cursor)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + cursor);
+        }
+        return new ObjectId(cursor);
+    }
+
+    private static long parseSequence(String cursor) {
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + cursor);
+        }
+    }
+
+    // after/before: message IDs or sequence numbers, both exclusive
+    public record Cursor<K>(K after, K before, Pageable pageable, boolean newestFirst) {
+
+        // Pages are always handed to clients oldest first
+        public <T> List<T> chronological(List<T> page) {
+            if (!newestFirst) {
+                return page;
+            }
+            List<T> ordered = new ArrayList<>(page);
+            Collections.reverse(ordered);
+            return ordered;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.demo.Services;
+
+import com.example.demo.model.ConversationSummary;
+import com.example.demo.model.Message;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Online status and typing indicators, held only in memory on this node.
+//
+// A user is online until chat.presence.ttl-ms after their last heartbeat, and typing in a chat
+// until chat.presence.typing-ttl-ms after their last typing signal. Heartbeats are a single
+// ConcurrentHashMap put; nothing is written to MongoDB. Expired entries are removed by a
+// hashed timer wheel advanced every chat.presence.tick-ms: each key sits in the slot of its
+// deadline, and keys refreshed since they were scheduled are moved on when their slot comes up.
+//
+// Typing signals are only accepted from members of the group, or in direct chats, which are keyed
+// by the sender's own ID. Only accepted signals count as a heartbeat and are pushed.
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class PresenceService {
+
+    @Autowired
+    private MessagePushService messagePushService;
+    @Autowired
+    private GroupService groupService;
+
+    private final long ttlMs;
+    private final long typingTtlMs;
+    private final Clock clock;
+
+    private final ConcurrentHashMap<String, Long> onlineUntil = new ConcurrentHashMap<>();
+    // Chat key (conversation ID or group key) -> user ID -> typing deadline
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Long>> typingUntil = new ConcurrentHashMap<>();
+
+    private final TimerWheel<Entry> wheel;
+    private ScheduledExecutorService ticker;
+
+    @Autowired
+    public PresenceService(@Value("${chat.presence.ttl-ms:30000}") long ttlMs,
+                           @Value("${chat.presence.typing-ttl-ms:5000}") long typingTtlMs,
+                           @Value("${chat.presence.tick-ms:1000}") long tickMs,
+                           MeterRegistry meterRegistry) {
+        this(ttlMs, typingTtlMs, tickMs, meterRegistry, Clock.systemUTC());
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "presence-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Without the ticker thread: expiry only runs when tick() is called
+    PresenceService(long ttlMs, long typingTtlMs, long tickMs, MeterRegistry meterRegistry, Clock clock) {
+        this.ttlMs = ttlMs;
+        this.typingTtlMs = typingTtlMs;
+        this.clock = clock;
+        this.wheel = new TimerWheel<>(tickMs, (int) (Math.max(ttlMs, typingTtlMs) / tickMs) + 2, clock.millis(),
+                this::expire);
+        meterRegistry.gaugeMapSize("chat.presence.online", Tags.empty(), onlineUntil);
+    }
+
+    // Marks the user online for another TTL
+    public void heartbeat(String userId) {
+        long deadline = clock.millis() + ttlMs;
+        if (onlineUntil.put(userId, deadline) == null) {
+            wheel.schedule(new Entry(onlineUntil, userId, null), deadline);
+        }
+    }
+
+    public boolean isOnline(String userId) {
+        Long deadline = onlineUntil.get(userId);
+        return deadline != null && deadline > clock.millis();
+    }
+
+    // Online status of each given user, in the given order
+    public Map<String, Boolean> getOnline(Collection<String> userIds) {
+        long now = clock.millis();
+        Map<String, Boolean> online = new LinkedHashMap<>();
+        for (String userId : userIds) {
+            Long deadline = onlineUntil.get(userId);
+            online.put(userId, deadline != null && deadline > now);
+        }
+        return online;
+    }
+
+    public static boolean isChatType(String chatType) {
+        return ConversationSummary.DIRECT.equals(chatType) || ConversationSummary.GROUP.equals(chatType);
+    }
+
+    // Records that the user is typing in a direct chat (chatId = other user's ID) or a group
+    // (chatId = group ID), counts as a heartbeat and notifies the chat's connected clients.
+    // Returns false, doing nothing, if the user is not a member of the group.
+    public boolean typing(String userId, String chatType, String chatId) {
+        String chat = chatKey(userId, chatType, chatId);
+        if (!participates(userId, chatType, chatId)) {
+            return false;
+        }
+        long deadline = clock.millis() + typingTtlMs;
+        // Inside compute, so the put cannot land in a map that expiry has just removed
+        typingUntil.compute(chat, (key, typers) -> {
+            ConcurrentHashMap<String, Long> current = typers == null ? new ConcurrentHashMap<>() : typers;
+            if (current.put(userId, deadline) == null) {
+                wheel.schedule(new Entry(current, userId, chat), deadline);
+            }
+            return current;
+        });
+        heartbeat(userId);
+        messagePushService.publishTyping(userId, chatType, chatId);
+        return true;
+    }
+
+    // Users currently typing in the chat as seen by userId, excluding userId (403 for non-members of a group)
+    public List<String> getTyping(String userId, String chatType, String chatId) {
+        String chat = chatKey(userId, chatType, chatId);
+        if (!participates(userId, chatType, chatId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Not a member of the group");
+        }
+        Map<String, Long> typers = typingUntil.get(chat);
+        List<String> typing = new ArrayList<>();
+        if (typers == null) {
+            return typing;
+        }
+        long now = clock.millis();
+        typers.forEach((typer, deadline) -> {
+            if (deadline > now && !typer.equals(userId)) {
+                typing.add(typer);
+            }
+        });
+        return typing;
+    }
+
+    // Removes expired entries; run by the ticker thread every chat.presence.tick-ms
+    void tick() {
+        wheel.advance(clock.millis());
+    }
+
+    private boolean participates(String userId, String chatType, String chatId) {
+        return ConversationSummary.DIRECT.equals(chatType) || groupService.isMember(chatId, userId);
+    }
+
+    private static String chatKey(String userId, String chatType, String chatId) {
+        if (chatId == null || chatId.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "chatId is required");
+        }
+        if (ConversationSummary.DIRECT.equals(chatType)) {
+            return Message.conversationIdOf(userId, chatId);
+        }
+        if (ConversationSummary.GROUP.equals(chatType)) {
+            return MessageStamper.groupKey(chatId);
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "chatType must be \"direct\" or \"group\"");
+    }
+
+    // Drops an expired key, or reschedules it if it was refreshed since it was scheduled
+    private void expire(Entry entry, long now) {
+        while (true) {
+            Long deadline = entry.deadlines().get(entry.key());
+            if (deadline == null) {
+                return;
+            }
+            if (deadline > now) {
+                wheel.schedule(entry, deadline);
+                return;
+            }
+            if (entry.deadlines().remove(entry.key(), deadline)) {
+                if (entry.chat() != null) {
+                    typingUntil.computeIfPresent(entry.chat(), (chat, typers) -> typers.isEmpty() ? null : typers);
+                }
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    // A key in one of the deadline maps; chat is set for typing entries
+    private record Entry(ConcurrentHashMap<String, Long> deadlines, String key, String chat) {}
+}
@@ -0,0 +1,199 @@
+package com.example.demo.Services;
+
+import com.example.demo.Repository.ReactiveGroupMessageRepository;
+import com.example.demo.Repository.ReactiveGroupRepository;
+import com.example.demo.Repository.ReactiveMessageRepository;
+import com.example.demo.model.ConversationSummary;
+import com.example.demo.model.Group;
+import com.example.demo.model.GroupMessage;
+import com.example.demo.model.Message;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+// Non-blocking version of the messaging paths of MessageService, GroupService and
+// ConversationSummaryService for the "reactive" profile: the same documents, indexes, stamping
+// and chat list updates, with every MongoDB call on the reactive driver. WebSocket push is part
+// of the servlet stack and not available here, and group messages are always delivered by
+// fan-out on read (members page through the group history), whatever chat.fanout.* selects.
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveChatService {
+
+    @Autowired
+    private ReactiveMessageRepository messageRepository;
+    @Autowired
+    private ReactiveGroupMessageRepository groupMessageRepository;
+    @Autowired
+    private ReactiveGroupRepository groupRepository;
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+    @Autowired
+    private Pagination pagination;
+
+    public Mono<Message> sendMessage(Message message) {
+        if (message.getSenderId() == null || message.getReceiverId() == null) {
+            return Mono.error(new RuntimeException("Sender and receiver are required"));
+        }
+        message.setConversationId(Message.conversationIdOf(message.getSenderId(), message.getReceiverId()));
+        message.setId(new ObjectId().toHexString());
+        return insertStamped(message.getConversationId(), message, messageRepository.insert(message))
+                .flatMap(saved -> directMessageSent(saved).thenReturn(saved));
+    }
+
+    public Flux<Message> getMessages(String receiverId, String after, String before, Integer limit) {
+        Pagination.Cursor<ObjectId> cursor = pagination.of(after, before, limit);
+        return chronological(cursor, messageRepository.findReceivedPage(
+                receiverId, cursor.after(), cursor.before(), cursor.pageable()));
+    }
+
+    public Flux<Message> getAllMessages(String after, String before, Integer limit) {
+        Pagination.Cursor<ObjectId> cursor = pagination.of(after, before, limit);
+        return chronological(cursor, messageRepository.findPage(cursor.after(), cursor.before(), cursor.pageable()));
+    }
+
+    public Flux<Message> getConversation(String senderId, String receiverId, String after, String before, Integer limit) {
+        Pagination.Cursor<Long> cursor = pagination.bySequence(after, before, limit);
+        return chronological(cursor, messageRepository.findConversationPage(
+                Message.conversationIdOf(senderId, receiverId), cursor.after(), cursor.before(), cursor.pageable()));
+    }
+
+    public Mono<Group> createGroup(Group group) {
+        return Mono.fromRunnable(() -> GroupService.prepareNew(group))
+                .then(groupRepository.save(group))
+                .flatMap(saved -> membersAdded(saved.getId(), saved.getMembers()).thenReturn(saved));
+    }
+
+    public Mono<Group> addMember(String groupId, String memberId) {
+        return mongoTemplate.findAndModify(GroupService.withoutMember(groupId, memberId), GroupService.addedMember(memberId),
+                        FindAndModifyOptions.options().returnNew(true), Group.class)
+                .switchIfEmpty(groupRepository.existsById(groupId).flatMap(exists -> Mono.error(new RuntimeException(
+                        exists ? "Member already exists in the group" : "Group not found"))))
+                .flatMap(group -> membersAdded(groupId, List.of(memberId)).thenReturn(group));
+    }
+
+    public Mono<Message> sendGroupMessage(String groupId, Message message) {
+        return groupRepository.existsById(groupId).flatMap(exists -> {
+            if (!exists) {
+                return Mono.error(new RuntimeException("Group not found"));
+            }
+            message.setId(new ObjectId().toHexString());
+            GroupMessage entity = new GroupMessage(groupId, message);
+            return insertStamped(MessageStamper.groupKey(groupId), entity, groupMessageRepository.insert(entity))
+                    .map(GroupMessage::toMessage)
+                    .flatMap(stored -> groupMessageSent(groupId, stored).thenReturn(stored));
+        });
+    }
+
+    public Flux<Message> getGroupHistory(String groupId, String after, String before, Integer limit) {
+        Pagination.Cursor<Long> cursor = pagination.bySequence(after, before, limit);
+        return groupRepository.existsById(groupId).flatMapMany(exists -> {
+            if (!exists) {
+                return Flux.error(new RuntimeException("Group not found"));
+            }
+            return chronological(cursor, groupMessageRepository.findPage(
+                    groupId, cursor.after(), cursor.before(), cursor.pageable()))
+                    .map(GroupMessage::toMessage);
+        });
+    }
+
+    public Mono<List<String>> getMembers(String groupId) {
+        return groupRepository.findById(groupId)
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("Group not found")))
+                .map(Group::getMembers);
+    }
+
+    public Mono<Boolean> isMember(String groupId, String userId) {
+        return mongoTemplate.exists(GroupService.member(groupId, userId), Group.class);
+    }
+
+    public Flux<Group> getUserGroups(String userId) {
+        return groupRepository.findByMember(userId);
+    }
+
+    public Flux<ConversationSummary> getSummaries(String userId, Integer limit) {
+        return mongoTemplate.find(
+                ConversationSummaryService.summariesOf(userId, pagination.pageSize(limit)), ConversationSummary.class);
+    }
+
+    public Mono<Void> markRead(String userId, String chatType, String chatId) {
+        return Mono.fromCallable(() -> ConversationSummaryService.read(userId, chatType, chatId))
+                .flatMap(read -> mongoTemplate.exists(ConversationSummaryService.participation(userId, chatType, chatId),
+                                ConversationSummaryService.participationType(chatType))
+                        .flatMap(participant -> participant
+                                ? mongoTemplate.upsert(ConversationSummaryService.byId(userId, chatType, chatId),
+                                        read, ConversationSummary.class)
+                                : Mono.error(ConversationSummaryService.notAParticipant())))
+                .then();
+    }
+
+    private Mono<Void> membersAdded(String groupId, Collection<String> memberIds) {
+        if (memberIds.isEmpty()) {
+            return Mono.empty();
+        }
+        ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ConversationSummary.class);
+        for (String memberId : memberIds) {
+            bulk.upsert(ConversationSummaryService.byId(memberId, ConversationSummary.GROUP, groupId),
+                    ConversationSummaryService.owner(memberId, ConversationSummary.GROUP, groupId));
+        }
+        return bulk.execute().then();
+    }
+
+    private Mono<Void> directMessageSent(Message message) {
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, ConversationSummary.class)
+                .upsert(ConversationSummaryService.byId(message.getSenderId(), ConversationSummary.DIRECT, message.getReceiverId()),
+                        ConversationSummaryService.owner(message.getSenderId(), ConversationSummary.DIRECT, message.getReceiverId()))
+                .upsert(ConversationSummaryService.byId(message.getReceiverId(), ConversationSummary.DIRECT, message.getSenderId()),
+                        ConversationSummaryService.owner(message.getReceiverId(), ConversationSummary.DIRECT, message.getSenderId())
+                                .inc("unreadCount", 1))
+                .updateMulti(ConversationSummaryService.newerThanLast(ConversationSummaryService.directRows(message), message),
+                        ConversationSummaryService.lastMessage(message))
+                .execute()
+                .then();
+    }
+
+    private Mono<Void> groupMessageSent(String groupId, Message message) {
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, ConversationSummary.class)
+                .updateMulti(ConversationSummaryService.otherMembers(groupId, message.getSenderId()),
+                        ConversationSummaryService.unread())
+                .upsert(ConversationSummaryService.byId(message.getSenderId(), ConversationSummary.GROUP, groupId),
+                        ConversationSummaryService.owner(message.getSenderId(), ConversationSummary.GROUP, groupId))
+                .updateMulti(ConversationSummaryService.newerThanLast(ConversationSummaryService.groupRows(groupId), message),
+                        ConversationSummaryService.lastMessage(message))
+                .execute()
+                .then();
+    }
+
+    // Stamps the entity like MessageStamper.stamp, then runs insert; a rejected insert gives its
+    // sequence number back like MessageStamper.release
+    private <T> Mono<T> insertStamped(String key, T entity, Mono<T> insert) {
+        return mongoTemplate.findAndModify(MessageStamper.counter(key), MessageStamper.take(1),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true),
+                        Document.class, MessageStamper.SEQUENCES_COLLECTION)
+                .flatMap(counter -> {
+                    long sequence = ((Number) counter.get("sequence")).longValue();
+                    MessageStamper.stamp(entity, sequence, MessageStamper.now());
+                    return insert.onErrorResume(DataIntegrityViolationException.class, e -> mongoTemplate
+                            .updateFirst(MessageStamper.lastTaken(key, sequence), MessageStamper.giveBack(),
+                                    MessageStamper.SEQUENCES_COLLECTION)
+                            .then(Mono.error(e)));
+                });
+    }
+
+    // Oldest-first pages stream as documents arrive; newest-first pages are bounded and reversed once read
+    private static <T> Flux<T> chronological(Pagination.Cursor<?> cursor, Flux<T> page) {
+        return cursor.newestFirst() ? page.collectList().flatMapIterable(cursor::chronological) : page;
+    }
+}
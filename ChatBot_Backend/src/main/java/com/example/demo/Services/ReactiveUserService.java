@@ -0,0 +1,200 @@
+package com.example.demo.Services;
+
+import com.example.demo.Repository.ReactiveUserRepository;
+import com.example.demo.model.User;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+// Non-blocking registration, login and user lookups for the "reactive" profile, using the same
+// identity caches as UserService. Password hashing is CPU work and runs on the parallel scheduler
+// (one thread per core), never on the event loop.
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserService {
+
+    @Autowired
+    private ReactiveUserRepository userRepository;
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private JwtService jwtService;
+
+    @Value("${chat.auth.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private String unknownUserHash;
+
+    @PostConstruct
+    public void init() {
+        unknownUserHash = UserService.unknownUserHash(passwordEncoder);
+    }
+
+    // Same checks as UserService.register
+    public Mono<User> register(User user) {
+        return userRepository.findByEmail(user.getEmail())
+                .flatMap(taken -> Mono.<User>error(new RuntimeException(
+                        "The e-mail " + user.getEmail() + " is currently used by another user.")))
+                .switchIfEmpty(userRepository.findByName(user.getName())
+                        .flatMap(taken -> Mono.error(new RuntimeException(
+                                "The username " + user.getName() + " is currently used by another user."))))
+                .switchIfEmpty(hashing(() -> passwordEncoder.encode(user.getPassword()))
+                        .flatMap(encoded -> {
+                            user.setPassword(encoded);
+                            return userRepository.save(user);
+                        }))
+                .doOnNext(this::evictUser);
+    }
+
+    // Same contract as AuthService.loginAsync: the user and a JWT, or "Invalid email or password",
+    // or "Login timed out" after chat.auth.timeout-ms
+    public Mono<AuthService.Login> login(String email, String password) {
+        return credentials(email)
+                .switchIfEmpty(hashing(() -> password != null && passwordEncoder.matches(password, unknownUserHash))
+                        .then(Mono.empty()))  // As slow as a wrong password of an existing account
+                .filterWhen(credentials -> hashing(() ->
+                        password != null && passwordEncoder.matches(password, credentials.passwordHash())))
+                .flatMap(credentials -> userRepository.findById(credentials.userId())
+                        .switchIfEmpty(Mono.fromRunnable(() -> evict(UserService.USERS_BY_EMAIL_CACHE, email))))
+                .flatMap(user -> passwordEncoder.upgradeEncoding(user.getPassword())
+                        ? rehash(user, password).thenReturn(user) : Mono.just(user))
+                .map(user -> new AuthService.Login(user, jwtService.issue(user)))
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("Invalid email or password")))
+                .timeout(Duration.ofMillis(timeoutMs), Mono.error(() -> new RuntimeException("Login timed out")));
+    }
+
+    public Flux<User> getAllUsers() {
+        return userRepository.findAll();
+    }
+
+    public Mono<String> getUserNameById(String id) {
+        return cached(UserService.USER_NAMES_CACHE, id, userRepository.findById(id).map(User::getName))
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("User not found with ID: " + id)));
+    }
+
+    public Mono<String> getUserIdByName(String name) {
+        return cached(UserService.USER_IDS_CACHE, name, userRepository.findByName(name).map(User::getId))
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("User not found with name: " + name)));
+    }
+
+    // Same contract as UserService.getUserNamesByIds: cache first, then one query per BATCH_SIZE ids
+    public Mono<Map<String, String>> getUserNamesByIds(Collection<String> ids) {
+        List<String> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        Cache nameCache = cacheManager.getCache(UserService.USER_NAMES_CACHE);
+        Map<String, String> found = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : distinctIds) {
+            String cached = nameCache == null ? null : nameCache.get(id, String.class);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < missing.size(); from += UserService.BATCH_SIZE) {
+            chunks.add(missing.subList(from, Math.min(from + UserService.BATCH_SIZE, missing.size())));
+        }
+        return Flux.fromIterable(chunks)
+                .concatMap(userRepository::findNamesByIdIn)
+                .doOnNext(user -> {
+                    if (nameCache != null) {
+                        nameCache.put(user.getId(), user.getName());
+                    }
+                })
+                .collectMap(User::getId, User::getName)
+                .map(loaded -> {
+                    Map<String, String> names = new LinkedHashMap<>();
+                    for (String id : distinctIds) {
+                        String name = found.containsKey(id) ? found.get(id) : loaded.get(id);
+                        if (name != null) {
+                            names.put(id, name);
+                        }
+                    }
+                    return names;
+                });
+    }
+
+    // Same as UserService.rehash
+    private Mono<Void> rehash(User user, String password) {
+        return hashing(() -> passwordEncoder.encode(password))
+                .flatMap(encoded -> mongoTemplate.updateFirst(
+                        new Query(Criteria.where("id").is(user.getId()).and("password").is(user.getPassword())),
+                        new Update().set("password", encoded), User.class))
+                .doOnNext(result -> evictUser(user))
+                .then();
+    }
+
+    private Mono<UserService.Credentials> credentials(String email) {
+        if (email == null) {
+            return Mono.empty();
+        }
+        Cache cache = cacheManager.getCache(UserService.USERS_BY_EMAIL_CACHE);
+        UserService.Credentials cached = cache == null ? null : cache.get(email, UserService.Credentials.class);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return userRepository.findByEmail(email)
+                .map(UserService::credentialsOf)
+                .doOnNext(found -> {
+                    if (cache != null) {
+                        cache.put(email, found);
+                    }
+                });
+    }
+
+    private static <T> Mono<T> hashing(Callable<T> hash) {
+        return Mono.fromCallable(hash).subscribeOn(Schedulers.parallel());
+    }
+
+    private void evictUser(User user) {
+        evict(UserService.USER_NAMES_CACHE, user.getId());
+        evict(UserService.USER_IDS_CACHE, user.getName());
+        evict(UserService.USERS_BY_EMAIL_CACHE, user.getEmail());
+    }
+
+    private void evict(String cacheName, String key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+
+    private Mono<String> cached(String cacheName, String key, Mono<String> load) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return load;
+        }
+        String cached = cache.get(key, String.class);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return load.doOnNext(value -> cache.put(key, value));
+    }
+}
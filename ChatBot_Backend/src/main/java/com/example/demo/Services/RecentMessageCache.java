@@ -0,0 +1,275 @@
+package com.example.demo.Services;
+
+import com.example.demo.model.Message;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+// The last chat.recent-cache.messages-per-chat messages of recently opened conversations and
+// groups, kept in one small ring buffer per chat (keyed by conversation ID or group key).
+//
+// A buffer is created when a chat's latest page is read from MongoDB and is appended to on the
+// send path, so the first page of an active chat is served from memory. Page requests whose
+// window is not fully inside the buffer fall through to MongoDB. Buffers are evicted as a whole
+// by Caffeine once their estimated total size exceeds chat.recent-cache.max-bytes, least recently
+// and least frequently used first.
+//
+// Only messages written through this node (or seen on the change stream) are appended, so a buffer
+// is dropped chat.recent-cache.ttl-ms after it was loaded, however often it is appended to: that
+// bounds how long a node without change streams can miss messages written through other nodes.
+// Messages without a sequence number cannot be placed in a buffer, so they drop the chat's buffer
+// instead. Buffers hold copies and hand out copies, so callers may modify what they get.
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class RecentMessageCache {
+
+    private final boolean enabled;
+    private final int capacity;
+    private final Cache<String, Recent> buffers;
+    private final Counter hits;
+    private final Counter misses;
+
+    public RecentMessageCache(@Value("${chat.recent-cache.enabled:true}") boolean enabled,
+                              @Value("${chat.recent-cache.messages-per-chat:50}") int capacity,
+                              @Value("${chat.recent-cache.max-bytes:67108864}") long maxBytes,
+                              @Value("${chat.recent-cache.ttl-ms:10000}") long ttlMs,
+                              MeterRegistry meterRegistry) {
+        this.enabled = enabled && capacity > 0;
+        this.capacity = capacity;
+        this.buffers = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, Recent recent) -> recent.weight())
+                .expireAfter(expireAfterLoad(TimeUnit.MILLISECONDS.toNanos(ttlMs)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buffers, "recentMessages");
+        Gauge.builder("chat.recent.cache.bytes", buffers,
+                        cache -> cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L))
+                .description("Estimated size of the cached recent messages")
+                .register(meterRegistry);
+        this.hits = meterRegistry.counter("chat.recent.cache.pages", "result", "hit");
+        this.misses = meterRegistry.counter("chat.recent.cache.pages", "result", "miss");
+    }
+
+    // The page for the cursor if the chat's buffer covers it, otherwise null
+    public List<Message> page(String key, Pagination.Cursor<Long> cursor) {
+        Recent recent = enabled ? buffers.getIfPresent(key) : null;
+        List<Message> page = recent == null ? null : recent.page(cursor);
+        (page == null ? misses : hits).increment();
+        return page;
+    }
+
+    // Loads the chat's latest messages with loader (called with the buffer capacity, returning
+    // newest messages in chronological order), fills the buffer and returns the newest `size`.
+    // Messages appended while the loader runs are kept.
+    public List<Message> loadLatest(String key, int size, IntFunction<List<Message>> loader) {
+        if (!enabled || size > capacity) {
+            return loader.apply(size);
+        }
+        buffers.asMap().computeIfAbsent(key, ignored -> new Recent(capacity));
+        List<Message> latest = loader.apply(capacity);
+        if (!stamped(latest)) {
+            buffers.invalidate(key);
+            return tail(latest, size);
+        }
+        Recent recent = buffers.asMap().computeIfPresent(key, (ignored, existing) -> {
+            existing.fill(latest, latest.size() < capacity);
+            return existing;  // Re-weighed by Caffeine
+        });
+        if (recent == null) {
+            return tail(latest, size);  // Evicted during the load
+        }
+        return tail(recent.snapshot(), size);
+    }
+
+    // Adds a newly written message to the chat's buffer, if the chat is cached
+    public void append(String key, Message message) {
+        if (enabled && message.getSequence() == null) {
+            buffers.invalidate(key);
+        } else if (enabled) {
+            buffers.asMap().computeIfPresent(key, (ignored, recent) -> {
+                recent.add(message);
+                return recent;
+            });
+        }
+    }
+
+    // Entries live for ttlNanos from their creation; appends (updates) and reads do not extend it
+    private static Expiry<String, Recent> expireAfterLoad(long ttlNanos) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(String key, Recent recent, long currentTime) {
+                return ttlNanos;
+            }
+
+            @Override
+            public long expireAfterUpdate(String key, Recent recent, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+
+            @Override
+            public long expireAfterRead(String key, Recent recent, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    private static boolean stamped(List<Message> messages) {
+        return messages.stream().allMatch(message -> message.getSequence() != null);
+    }
+
+    private static <T> List<T> tail(List<T> list, int size) {
+        return list.size() <= size ? list : list.subList(list.size() - size, list.size());
+    }
+
+    // Ring buffer of one chat's newest messages, ordered by sequence number (oldest at `start`)
+    static final class Recent {
+
+        private static final int MESSAGE_OVERHEAD = 320;  // Object headers, ids, timestamps
+
+        private final Message[] ring;
+        private int start;
+        private int size;
+        private long bytes;
+        private boolean loaded;    // Filled from MongoDB; until then only appends are collected
+        private boolean complete;  // Holds every message of the chat (fewer than capacity exist)
+        private boolean truncated; // Has dropped messages to stay within capacity
+
+        Recent(int capacity) {
+            this.ring = new Message[capacity];
+        }
+
+        synchronized void fill(List<Message> latest, boolean wholeChat) {
+            latest.forEach(this::insert);
+            loaded = true;
+            complete = wholeChat && !truncated;
+        }
+
+        synchronized void add(Message message) {
+            insert(message);
+        }
+
+        synchronized List<Message> snapshot() {
+            return range(0, size);
+        }
+
+        synchronized List<Message> page(Pagination.Cursor<Long> cursor) {
+            if (!loaded) {
+                return null;
+            }
+            long after = cursor.after();
+            long before = cursor.before();
+            int pageSize = cursor.pageable().getPageSize();
+
+            if (cursor.newestFirst()) {
+                // Newest `pageSize` messages older than `before`
+                int end = size;
+                while (end > 0 && sequence(end - 1) >= before) {
+                    end--;
+                }
+                if (end < pageSize && !complete) {
+                    return null;
+                }
+                return range(Math.max(0, end - pageSize), end);
+            }
+
+            // Oldest `pageSize` messages after `after`; the buffer must reach back to the cursor
+            if (!complete && (size == 0 || sequence(0) > after)) {
+                return null;
+            }
+            int from = 0;
+            while (from < size && sequence(from) <= after) {
+                from++;
+            }
+            int end = from;
+            while (end < size && end - from < pageSize && sequence(end) < before) {
+                end++;
+            }
+            return range(from, end);
+        }
+
+        int weight() {
+            long current;
+            synchronized (this) {
+                current = bytes + 64L + 8L * ring.length;
+            }
+            return (int) Math.min(Integer.MAX_VALUE, current);
+        }
+
+        // Inserts in sequence order (new messages normally go at the end), dropping the oldest when full
+        private void insert(Message message) {
+            long sequence = message.getSequence();
+            int position = size;
+            while (position > 0 && sequence(position - 1) > sequence) {
+                position--;
+            }
+            if (position > 0 && sequence(position - 1) == sequence) {
+                return;  // Already present
+            }
+            if (size == ring.length) {
+                if (position == 0) {
+                    return;  // Older than everything kept
+                }
+                bytes -= estimate(at(0));
+                ring[start] = null;
+                start = (start + 1) % ring.length;
+                size--;
+                position--;
+                truncated = true;
+                complete = false;
+            }
+            for (int i = size; i > position; i--) {
+                ring[(start + i) % ring.length] = at(i - 1);
+            }
+            ring[(start + position) % ring.length] = copy(message);
+            size++;
+            bytes += estimate(message);
+        }
+
+        private Message at(int index) {
+            return ring[(start + index) % ring.length];
+        }
+
+        private long sequence(int index) {
+            return at(index).getSequence();
+        }
+
+        private List<Message> range(int from, int to) {
+            List<Message> page = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                page.add(copy(at(i)));
+            }
+            return page;
+        }
+
+        private static Message copy(Message message) {
+            Message copy = new Message(message.getSenderId(), message.getReceiverId(),
+                    message.getContent(), message.getTimestamp());
+            copy.setId(message.getId());
+            copy.setConversationId(message.getConversationId());
+            copy.setSentAt(message.getSentAt());
+            copy.setSequence(message.getSequence());
+            return copy;
+        }
+
+        private static long estimate(Message message) {
+            return MESSAGE_OVERHEAD + 2L * (length(message.getContent()) + length(message.getTimestamp()));
+        }
+
+        private static int length(String value) {
+            return value == null ? 0 : value.length();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.demo.Services;
+
+import com.example.demo.Repository.GroupMessageRepository;
+import com.example.demo.Repository.MessageRepository;
+import com.example.demo.model.Group;
+import com.example.demo.model.GroupMessage;
+import com.example.demo.model.Message;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Delta sync: given the sequence number of the newest message the client holds for each conversation
+// and group (its watermark), returns only newer messages plus the new watermarks, for all of them in one call.
+//
+// Conversations the client does not list yet are found through a separate "since" watermark: the server
+// send time up to which the client has seen every sender. Send times are stamped right before a message
+// is inserted, so a message can become visible slightly after a newer one; the returned "since" is kept
+// chat.sync.since-lag-ms behind the server clock to cover that (and clock differences between nodes).
+// Senders can therefore be reported more than once, which is harmless: their conversation is synced by
+// its own sequence watermark.
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class SyncService {
+
+    @Autowired
+    private MessageRepository messageRepository;
+    @Autowired
+    private GroupMessageRepository groupMessageRepository;
+    @Autowired
+    private GroupService groupService;
+    @Autowired
+    private Pagination pagination;
+
+    @Value("${chat.sync.since-lag-ms:5000}")
+    private long sinceLagMs;
+
+    Clock clock = Clock.systemUTC();
+
+    // conversations: other user ID -> watermark, groups: group ID -> watermark (null for "from the start").
+    // since: optional watermark for conversations the client does not list yet (the "since" of the previous
+    // response, in epoch milliseconds; a message ID is accepted for clients of the ID-based version).
+    public record SyncRequest(String userId, Map<String, String> conversations, Map<String, String> groups,
+                              String since, Integer limit) {}
+
+    // Messages newer than the watermark, oldest first; hasMore means another call is needed to catch up
+    public record Delta(List<Message> messages, String watermark, boolean hasMore) {}
+
+    // since: the watermark for the next call (null if the request had none); sinceHasMore means more
+    // senders are left and the next call should follow right away
+    public record SyncResponse(Map<String, Delta> conversations, Map<String, Delta> groups,
+                               String since, boolean sinceHasMore) {}
+
+    public SyncResponse sync(SyncRequest request) {
+        if (request.userId() == null) {
+            throw new RuntimeException("userId is required");
+        }
+        String userId = request.userId();
+
+        Map<String, Delta> conversations = new LinkedHashMap<>();
+        if (request.conversations() != null) {
+            request.conversations().forEach((otherUserId, watermark) ->
+                    conversations.put(otherUserId, conversationDelta(userId, otherUserId, watermark, request.limit())));
+        }
+
+        // Conversations the client does not know yet: everyone who sent the user a message since the
+        // watermark, synced from the start of the conversation
+        String since = null;
+        boolean sinceHasMore = false;
+        if (request.since() != null) {
+            Instant from = parseSince(request.since());
+            int limit = pagination.pageSize(request.limit());
+            List<MessageRepository.Sender> senders = messageRepository.findSendersSince(userId, from, limit);
+            for (MessageRepository.Sender sender : senders) {
+                conversations.computeIfAbsent(sender.senderId(),
+                        senderId -> conversationDelta(userId, senderId, null, request.limit()));
+            }
+            sinceHasMore = senders.size() == limit;
+            since = String.valueOf(nextSince(from, sinceHasMore ? senders.get(senders.size() - 1).lastSentAt() : null)
+                    .toEpochMilli());
+        }
+
+        Map<String, Delta> groups = new LinkedHashMap<>();
+        if (request.groups() != null) {
+            Set<String> memberOf = groupService.getUserGroups(userId).stream()
+                    .map(Group::getId)
+                    .collect(Collectors.toSet());
+            request.groups().forEach((groupId, watermark) -> {
+                if (!memberOf.contains(groupId)) {
+                    return;  // Only groups the user belongs to are synced
+                }
+                Pagination.Cursor<Long> cursor = pagination.bySequence(
+                        watermark == null ? String.valueOf(Pagination.FIRST_SEQUENCE) : watermark, null, request.limit());
+                List<Message> messages = groupMessageRepository.findPage(
+                                groupId, cursor.after(), cursor.before(), cursor.pageable()).stream()
+                        .map(GroupMessage::toMessage)
+                        .collect(Collectors.toList());
+                groups.put(groupId, delta(messages, watermark, cursor));
+            });
+        }
+
+        return new SyncResponse(conversations, groups, since, sinceHasMore);
+    }
+
+    private Delta conversationDelta(String userId, String otherUserId, String watermark, Integer limit) {
+        Pagination.Cursor<Long> cursor = pagination.bySequence(
+                watermark == null ? String.valueOf(Pagination.FIRST_SEQUENCE) : watermark, null, limit);
+        List<Message> messages = messageRepository.findConversationPage(
+                Message.conversationIdOf(userId, otherUserId), cursor.after(), cursor.before(), cursor.pageable());
+        return delta(messages, watermark, cursor);
+    }
+
+    // Once every sender is listed, the watermark moves to the lag-safe "now". On a full page it moves to
+    // the last listed sender's time, capped at that same lag unless that would not move it at all.
+    private Instant nextSince(Instant from, Instant lastListed) {
+        Instant settled = clock.instant().minusMillis(sinceLagMs);
+        Instant next = lastListed == null || settled.isBefore(lastListed) ? settled : lastListed;
+        if (!next.isAfter(from)) {
+            return lastListed == null ? from : lastListed;
+        }
+        return next;
+    }
+
+    // A malformed watermark is the client's mistake: 400 rather than 500
+    private static Instant parseSince(String since) {
+        if (ObjectId.isValid(since)) {
+            return new ObjectId(since).getDate().toInstant();
+        }
+        try {
+            return Instant.ofEpochMilli(Long.parseLong(since));
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid since: " + since);
+        }
+    }
+
+    private static Delta delta(List<Message> messages, String watermark, Pagination.Cursor<Long> cursor) {
+        return new Delta(messages, watermarkOf(messages, watermark), messages.size() == cursor.pageable().getPageSize());
+    }
+
+    private static String watermarkOf(List<Message> messages, String watermark) {
+        return messages.isEmpty() ? watermark : String.valueOf(messages.get(messages.size() - 1).getSequence());
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.Services;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Hashed timer wheel: slots of lock-free queues, one per tick. An entry scheduled for a deadline is
+// handed to onDue in the first tick after it; a full revolution must cover the longest delay.
+// schedule() may be called from any thread, advance() from one thread at a time.
+final class TimerWheel<E> {
+
+    interface OnDue<E> {
+        void due(E entry, long now);
+    }
+
+    private final long tickMs;
+    private final Queue<E>[] slots;
+    private final OnDue<E> onDue;
+    private long processedTick;  // Only touched by the thread calling advance
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(long tickMs, int slotCount, long now, OnDue<E> onDue) {
+        this.tickMs = tickMs;
+        this.slots = new Queue[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.onDue = onDue;
+        this.processedTick = now / tickMs;
+    }
+
+    void schedule(E entry, long deadline) {
+        slots[(int) ((deadline / tickMs + 1) % slots.length)].add(entry);
+    }
+
+    // Processes every slot whose tick has passed
+    void advance(long now) {
+        long target = now / tickMs;
+        while (processedTick < target) {
+            processedTick++;
+            Queue<E> slot = slots[(int) (processedTick % slots.length)];
+            // Entries rescheduled into this same slot wait for the next revolution
+            for (int count = slot.size(); count > 0; count--) {
+                E entry = slot.poll();
+                if (entry == null) {
+                    break;
+                }
+                onDue.due(entry, now);
+            }
+        }
+    }
+}
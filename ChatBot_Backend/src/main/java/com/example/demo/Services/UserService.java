@@ -2,17 +2,60 @@ package com.example.demo.Services;
 
 import com.example.demo.model.User;
 import com.example.demo.Repository.UserRepository;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 @Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserService {
 
+    // Identity caches: id -> name, name -> id and email -> credentials (for login)
+    public static final String USER_NAMES_CACHE = "userNames";
+    public static final String USER_IDS_CACHE = "userIds";
+    public static final String USERS_BY_EMAIL_CACHE = "usersByEmail";
+
+    // Upper bound on ids sent in a single $in query
+    static final int BATCH_SIZE = 1000;
+
+    // What login needs to check a password; users themselves are never cached, so callers cannot
+    // share or modify a cached instance
+    record Credentials(String userId, String passwordHash) {}
+
     @Autowired
     private UserRepository userRepository;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private String unknownUserHash;
+
+    @PostConstruct
+    public void init() {
+        unknownUserHash = unknownUserHash(passwordEncoder);
+    }
 
     // Register a new user
     public User register(User user) {
@@ -23,18 +66,41 @@ public class UserService {
             throw new RuntimeException("The username " + user.getName() + " is currently used by another user.");
         }
 
-        return userRepository.save(user);
+        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        User saved = userRepository.save(user);
+        evictUser(saved);
+        return saved;
     }
 
-    // Login user by verifying email and password
+    // Login user by verifying email and password. CPU-heavy (password hashing): call through AuthService.
+    // The password is checked against cached credentials; only a successful login loads the user.
     public User login(String email, String password) {
-        Optional<User> userOptional = userRepository.findByEmail(email); // Optional<User> döner
-        if (userOptional.isPresent() && userOptional.get().getPassword().equals(password)) {
-            return userOptional.get(); // Kullanıcıyı döndür
+        Optional<Credentials> credentials = findCredentialsCached(email);
+        String hash = credentials.map(Credentials::passwordHash).orElse(unknownUserHash);
+        if (password != null && passwordEncoder.matches(password, hash) && credentials.isPresent()) {
+            Optional<User> userOptional = userRepository.findById(credentials.get().userId());
+            if (userOptional.isPresent()) {
+                User user = userOptional.get();
+                if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+                    rehash(user, password);
+                }
+                return user; // Kullanıcıyı döndür
+            }
+            evict(USERS_BY_EMAIL_CACHE, email);
         }
         throw new RuntimeException("Invalid email or password");
     }
 
+    // Stores the password with the current encoding (plaintext from before hashing, or an older
+    // cost), unless the stored value changed concurrently
+    private void rehash(User user, String password) {
+        String encoded = passwordEncoder.encode(password);
+        mongoTemplate.updateFirst(
+                new Query(Criteria.where("id").is(user.getId()).and("password").is(user.getPassword())),
+                new Update().set("password", encoded), User.class);
+        evictUser(user);
+    }
+
     public List<String> getFriendList(String userId) {
         Optional<User> user = userRepository.findById(userId);
 
@@ -51,6 +117,12 @@ public class UserService {
         return userRepository.findAll();
     }
 
+    // Fetch all users with only their IDs and names loaded
+    public List<User> getAllUserNames() {
+        return userRepository.findAllNames();
+    }
+
+    @Cacheable(USER_NAMES_CACHE)
     public String getUserNameById(String id) {
         Optional<User> user = userRepository.findById(id);
         if (user.isPresent()) {
@@ -59,6 +131,7 @@ public class UserService {
         throw new RuntimeException("User not found with ID: " + id);
     }
 
+    @Cacheable(USER_IDS_CACHE)
     public String getUserIdByName(String name) {
         Optional<User> user = userRepository.findByName(name); // `findByName` metodu repository'de tanımlı olmalı
         if (user.isPresent()) {
@@ -66,4 +139,81 @@ public class UserService {
         }
         throw new RuntimeException("User not found with name: " + name);
     }
+
+    // Resolves many user IDs to names, from the name cache where possible and otherwise with
+    // one query per BATCH_SIZE ids. The result keeps the order of the given IDs; unknown IDs are left out.
+    public Map<String, String> getUserNamesByIds(Collection<String> ids) {
+        List<String> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        Cache nameCache = cacheManager.getCache(USER_NAMES_CACHE);
+        Map<String, String> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : distinctIds) {
+            String cached = nameCache == null ? null : nameCache.get(id, String.class);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        for (int from = 0; from < missing.size(); from += BATCH_SIZE) {
+            List<String> chunk = missing.subList(from, Math.min(from + BATCH_SIZE, missing.size()));
+            for (User user : userRepository.findNamesByIdIn(chunk)) {
+                found.put(user.getId(), user.getName());
+                if (nameCache != null) {
+                    nameCache.put(user.getId(), user.getName());
+                }
+            }
+        }
+
+        Map<String, String> names = new LinkedHashMap<>();
+        for (String id : distinctIds) {
+            if (found.containsKey(id)) {
+                names.put(id, found.get(id));
+            }
+        }
+        return names;
+    }
+
+    // Drops every cached identity entry of the user; call after any change to a user document
+    public void evictUser(User user) {
+        evict(USER_NAMES_CACHE, user.getId());
+        evict(USER_IDS_CACHE, user.getName());
+        evict(USERS_BY_EMAIL_CACHE, user.getEmail());
+    }
+
+    private Optional<Credentials> findCredentialsCached(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        Cache cache = cacheManager.getCache(USERS_BY_EMAIL_CACHE);
+        if (cache == null) {
+            return userRepository.findByEmail(email).map(UserService::credentialsOf);
+        }
+
+        Credentials cached = cache.get(email, Credentials.class);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<Credentials> credentials = userRepository.findByEmail(email).map(UserService::credentialsOf);
+        credentials.ifPresent(found -> cache.put(email, found));
+        return credentials;
+    }
+
+    // Checked instead of a stored hash when the e-mail is unknown, so a login takes as long whether or
+    // not the account exists (a random password nobody can match)
+    static String unknownUserHash(PasswordEncoder passwordEncoder) {
+        return passwordEncoder.encode(UUID.randomUUID().toString());
+    }
+
+    static Credentials credentialsOf(User user) {
+        return new Credentials(user.getId(), user.getPassword());
+    }
+
+    private void evict(String cacheName, String key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
 }
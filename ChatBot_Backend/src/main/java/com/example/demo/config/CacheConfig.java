@@ -0,0 +1,10 @@
+package com.example.demo.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+// Caches are Caffeine-backed; names and bounds are set through spring.cache.* properties
+@Configuration
+@EnableCaching
+public class CacheConfig {
+}
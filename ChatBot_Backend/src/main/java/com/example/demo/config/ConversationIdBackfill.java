@@ -0,0 +1,66 @@
+package com.example.demo.config;
+
+import com.example.demo.model.Message;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Updates.set;
+
+/**
+ * Backfills {@code conversationId} on direct messages saved before the field existed.
+ * Only messages without the field are read, so the job is a no-op once everything is stamped.
+ */
+@Component
+@Order(2)
+@ConditionalOnProperty(name = "chat.migration.conversation-id.enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ConversationIdBackfill implements StartupMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationIdBackfill.class);
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void migrate() {
+        var messages = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Message.class));
+        var pending = and(exists("conversationId", false), exists("senderId"), exists("receiverId"));
+
+        List<WriteModel<Document>> batch = new ArrayList<>(BATCH_SIZE);
+        long updated = 0;
+
+        for (Document message : messages.find(pending).projection(include("senderId", "receiverId")).batchSize(BATCH_SIZE)) {
+            String conversationId = Message.conversationIdOf(message.getString("senderId"), message.getString("receiverId"));
+            batch.add(new UpdateOneModel<>(eq("_id", message.get("_id")), set("conversationId", conversationId)));
+
+            if (batch.size() == BATCH_SIZE) {
+                updated += messages.bulkWrite(batch).getModifiedCount();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            updated += messages.bulkWrite(batch).getModifiedCount();
+        }
+
+        if (updated > 0) {
+            log.info("Backfilled conversationId on {} messages", updated);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.demo.config;
+
+import com.example.demo.Services.ConversationSummaryService;
+import com.example.demo.model.ConversationSummary;
+import com.example.demo.model.Group;
+import com.example.demo.model.GroupMessage;
+import com.example.demo.model.Message;
+import com.mongodb.client.MongoCollection;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.mongodb.client.model.Accumulators.first;
+import static com.mongodb.client.model.Accumulators.sum;
+import static com.mongodb.client.model.Aggregates.group;
+import static com.mongodb.client.model.Aggregates.match;
+import static com.mongodb.client.model.Aggregates.sort;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Sorts.descending;
+
+/**
+ * Creates chat list rows for groups and direct conversations that existed before chat lists did,
+ * since sends only update rows of a group that already exist and chat lists only show chats with rows.
+ *
+ * A group is filled in when it has fewer rows than members: a row is added for every member that
+ * lacks one and the rows take the group's newest message as their last message (never replacing a
+ * newer one), with nothing unread. A direct conversation is filled in when either side lacks a row,
+ * the same way, from the conversation's newest message. Chats whose rows are complete are skipped,
+ * so the job only reads once every chat is covered; the conversations are found with one
+ * aggregation over the (conversationId, sequence) index.
+ */
+@Component
+@Order(5)
+@ConditionalOnProperty(name = "chat.migration.conversation-summaries.enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ConversationSummaryBackfill implements StartupMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationSummaryBackfill.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private ConversationSummaryService conversationSummaryService;
+
+    @Override
+    public void migrate() {
+        var groups = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Group.class));
+        var summaries = mongoTemplate.getCollection(mongoTemplate.getCollectionName(ConversationSummary.class));
+
+        int backfilledGroups = backfillGroups(groups, summaries);
+        int backfilledConversations = backfillConversations(summaries);
+
+        if (backfilledGroups + backfilledConversations > 0) {
+            log.info("Backfilled chat list rows for the members of {} groups and {} direct conversations",
+                    backfilledGroups, backfilledConversations);
+        }
+    }
+
+    private int backfillGroups(MongoCollection<Document> groups, MongoCollection<Document> summaries) {
+        // Rows per group, in one pass over the group rows
+        Map<String, Integer> rows = new HashMap<>();
+        for (Document count : summaries.aggregate(List.of(
+                match(eq("chatType", ConversationSummary.GROUP)), group("$chatId", sum("rows", 1))))) {
+            rows.put(count.getString("_id"), count.getInteger("rows"));
+        }
+
+        int backfilled = 0;
+        for (Document group : groups.find().projection(include("_id", "members"))) {
+            String groupId = group.get("_id").toString();
+            List<String> members = group.getList("members", String.class, List.of());
+            if (rows.getOrDefault(groupId, 0) >= members.size()) {
+                continue;
+            }
+            conversationSummaryService.membersAdded(groupId, members);
+
+            GroupMessage newest = mongoTemplate.findOne(new Query(Criteria.where("groupId").is(groupId))
+                    .with(Sort.by(Sort.Direction.DESC, "sequence")), GroupMessage.class);
+            if (newest != null) {
+                conversationSummaryService.lastGroupMessage(groupId, newest.toMessage());
+            }
+            backfilled++;
+        }
+        return backfilled;
+    }
+
+    private int backfillConversations(MongoCollection<Document> summaries) {
+        // Conversations with both rows, in one pass over the direct rows
+        Map<String, Integer> rows = new HashMap<>();
+        for (Document row : summaries.find(eq("chatType", ConversationSummary.DIRECT)).projection(include("userId", "chatId"))) {
+            rows.merge(Message.conversationIdOf(row.getString("userId"), row.getString("chatId")), 1, Integer::sum);
+        }
+
+        // The newest message of every conversation
+        var messages = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Message.class));
+        int backfilled = 0;
+        for (Document newest : messages.aggregate(List.of(
+                        match(exists("conversationId")),
+                        sort(descending("conversationId", "sequence")),
+                        group("$conversationId", first("newest", "$$ROOT"))))
+                .allowDiskUse(true)) {
+            Message message = mongoTemplate.getConverter().read(Message.class, newest.get("newest", Document.class));
+            int sides = Objects.equals(message.getSenderId(), message.getReceiverId()) ? 1 : 2;
+            if (rows.getOrDefault(newest.getString("_id"), 0) >= sides) {
+                continue;
+            }
+            conversationSummaryService.lastDirectMessage(message);
+            backfilled++;
+        }
+        return backfilled;
+    }
+}
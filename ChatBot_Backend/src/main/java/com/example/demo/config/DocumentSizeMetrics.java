@@ -0,0 +1,87 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gauges for the size of embedded lists that grow with usage ({@code groups.members},
+ * {@code users.friends}, {@code users.pendingFriendRequests}) and for the group message
+ * collection. The values come from a periodic aggregation rather than from each scrape,
+ * so scraping never touches MongoDB. The aggregation reads a random sample of
+ * {@code chat.metrics.document-sizes.sample-size} documents per collection instead of scanning
+ * it, so the max and average are estimates over that sample.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class DocumentSizeMetrics implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentSizeMetrics.class);
+
+    // collection, list field
+    private static final List<String[]> LISTS = List.of(
+            new String[]{"groups", "members"},
+            new String[]{"users", "friends"},
+            new String[]{"users", "pendingFriendRequests"});
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${chat.metrics.document-sizes.sample-size:1000}")
+    private int sampleSize;
+
+    private final Map<String, Double> values = new ConcurrentHashMap<>();
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String[] list : LISTS) {
+            String name = list[0] + "." + list[1];
+            for (String statistic : List.of("max", "avg")) {
+                Gauge.builder("chat.documents.list.size", values, v -> v.getOrDefault(name + "." + statistic, 0.0))
+                        .tag("list", name)
+                        .tag("statistic", statistic)
+                        .description("Size of an embedded list across documents")
+                        .register(registry);
+            }
+        }
+        Gauge.builder("chat.documents.count", values, v -> v.getOrDefault("group_messages.count", 0.0))
+                .tag("collection", "group_messages")
+                .register(registry);
+    }
+
+    @Scheduled(initialDelayString = "${chat.metrics.document-sizes.refresh-ms:300000}",
+            fixedDelayString = "${chat.metrics.document-sizes.refresh-ms:300000}")
+    public void refresh() {
+        try {
+            for (String[] list : LISTS) {
+                String name = list[0] + "." + list[1];
+                List<Document> pipeline = List.of(
+                        new Document("$sample", new Document("size", sampleSize)),
+                        new Document("$project", new Document("size",
+                                new Document("$size", new Document("$ifNull", List.of("$" + list[1], List.of()))))),
+                        new Document("$group", new Document("_id", null)
+                                .append("max", new Document("$max", "$size"))
+                                .append("avg", new Document("$avg", "$size"))));
+                Document result = mongoTemplate.getCollection(list[0]).aggregate(pipeline).first();
+                values.put(name + ".max", result == null ? 0.0 : ((Number) result.get("max")).doubleValue());
+                values.put(name + ".avg", result == null ? 0.0 : ((Number) result.get("avg")).doubleValue());
+            }
+            values.put("group_messages.count", (double) mongoTemplate.getCollection("group_messages").estimatedDocumentCount());
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh document size metrics: {}", e.getMessage());
+        }
+    }
+}
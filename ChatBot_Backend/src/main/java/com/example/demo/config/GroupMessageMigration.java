@@ -0,0 +1,114 @@
+package com.example.demo.config;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Updates.unset;
+
+/**
+ * One-time migration that moves messages embedded in {@code groups.messages} into the
+ * {@code group_messages} collection. Only groups that still carry an embedded array are
+ * touched, and each group's array is removed once its messages are copied, so running it
+ * again on an already migrated database is a no-op.
+ *
+ * Copies get deterministic IDs (the embedded ID if there is one, otherwise one derived from the
+ * group and the message's position that sorts in array order) and are inserted unordered with
+ * duplicate keys ignored, so a run interrupted between the copy and the removal of the array
+ * neither duplicates messages nor fails when it is repeated.
+ */
+@Component
+@Order(1)
+@ConditionalOnProperty(name = "chat.migration.group-messages.enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class GroupMessageMigration implements StartupMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupMessageMigration.class);
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void migrate() {
+        var groups = mongoTemplate.getCollection("groups");
+        var groupMessages = mongoTemplate.getCollection("group_messages");
+        int migratedGroups = 0;
+        int migratedMessages = 0;
+
+        for (Document group : groups.find(exists("messages")).projection(include("_id", "messages"))) {
+            Object groupKey = group.get("_id");
+            List<Document> embedded = group.getList("messages", Document.class, List.of());
+
+            List<Document> copies = new ArrayList<>(embedded.size());
+            for (int index = 0; index < embedded.size(); index++) {
+                Document message = embedded.get(index);
+                Document copy = new Document("_id", message.get("_id") != null ? message.get("_id") : migratedId(groupKey, index))
+                        .append("groupId", groupKey.toString())
+                        .append("senderId", message.get("senderId"))
+                        .append("receiverId", message.get("receiverId"))
+                        .append("content", message.get("content"))
+                        .append("timestamp", message.get("timestamp"));
+                copies.add(copy);
+            }
+
+            insertIgnoringDuplicates(groupMessages, copies);
+            groups.updateOne(eq("_id", groupKey), unset("messages"));
+
+            migratedGroups++;
+            migratedMessages += copies.size();
+        }
+
+        if (migratedGroups > 0) {
+            log.info("Migrated {} embedded messages from {} groups into group_messages", migratedMessages, migratedGroups);
+        }
+    }
+
+    // Copies already written by an interrupted earlier run are skipped
+    private static void insertIgnoringDuplicates(MongoCollection<Document> collection, List<Document> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        try {
+            collection.insertMany(documents, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            if (e.getWriteErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+                throw e;
+            }
+        }
+    }
+
+    // The group's creation second (so migrated IDs sort with the group's age), 4 bytes of a hash of
+    // the group (so groups created in the same second do not collide) and the message's position in
+    // the embedded array, big-endian, so a group's migrated messages sort in their original order
+    static ObjectId migratedId(Object groupKey, int index) {
+        int seconds = groupKey instanceof ObjectId groupId ? groupId.getTimestamp() : 0;
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(groupKey.toString().getBytes(StandardCharsets.UTF_8));
+            return new ObjectId(ByteBuffer.allocate(12).putInt(seconds).put(hash, 0, 4).putInt(index).array());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
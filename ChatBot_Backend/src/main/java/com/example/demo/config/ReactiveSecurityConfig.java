@@ -0,0 +1,74 @@
+package com.example.demo.config;
+
+import com.example.demo.Services.JwtService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// SecurityConfig for the "reactive" profile: the same bearer token check and chat.auth.require-token switch
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableWebFluxSecurity
+public class ReactiveSecurityConfig {
+
+    private static final String BEARER = "Bearer ";
+
+    @Value("${chat.auth.require-token:false}")
+    private boolean requireToken;
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, JwtService jwtService) {
+        ReactiveAuthenticationManager tokenAuthentication = authentication ->
+                Mono.fromCallable(() -> jwtService.userIdOf((String) authentication.getCredentials()))
+                        .onErrorMap(e -> new BadCredentialsException("Invalid token"))
+                        .map(userId -> new UsernamePasswordAuthenticationToken(userId, null, List.of()));
+
+        AuthenticationWebFilter bearerFilter = new AuthenticationWebFilter(tokenAuthentication);
+        bearerFilter.setServerAuthenticationConverter(exchange -> {
+            String header = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            if (header == null || !header.startsWith(BEARER)) {
+                return Mono.empty();
+            }
+            String token = header.substring(BEARER.length());
+            return Mono.just(new UsernamePasswordAuthenticationToken(token, token));
+        });
+        // An invalid token leaves the request unauthenticated, as in JwtAuthenticationFilter
+        bearerFilter.setAuthenticationFailureHandler((webFilterExchange, e) ->
+                webFilterExchange.getChain().filter(webFilterExchange.getExchange()));
+
+        return http
+                .authorizeExchange(exchanges -> {
+                    if (requireToken) {
+                        exchanges
+                                .pathMatchers("/users/login", "/users/register", "/actuator/**").permitAll()
+                                .anyExchange().authenticated();
+                    } else {
+                        exchanges.anyExchange().permitAll();
+                    }
+                })
+                .addFilterAt(bearerFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+                .exceptionHandling(exceptions -> exceptions.authenticationEntryPoint(
+                        new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED)))
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .build();
+    }
+}
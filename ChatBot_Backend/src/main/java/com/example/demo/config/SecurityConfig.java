@@ -1,21 +1,43 @@
 package com.example.demo.config;
 
+import com.example.demo.Services.JwtService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @EnableWebSecurity
 public class SecurityConfig {
 
+    @Value("${chat.auth.require-token:false}")
+    private boolean requireToken;
+
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtService jwtService) throws Exception {
         http
-                .authorizeHttpRequests(authorizeRequests -> authorizeRequests
-                        .anyRequest().permitAll() // Allows all requests
-                )
+                .authorizeHttpRequests(authorizeRequests -> {
+                    if (requireToken) {
+                        authorizeRequests
+                                // /error renders the status of failed requests (otherwise every error became a 403)
+                                .requestMatchers("/users/login", "/users/register", "/actuator/**", "/error").permitAll()
+                                .anyRequest().authenticated();
+                    } else {
+                        authorizeRequests.anyRequest().permitAll(); // Allows all requests
+                    }
+                })
+                // Requests without a valid token that need one get 401
+                .exceptionHandling(exceptions -> exceptions.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .addFilterBefore(new JwtAuthenticationFilter(jwtService), UsernamePasswordAuthenticationFilter.class)
                 .csrf().disable(); // Disables CSRF for simplicity, only if it's safe for your use case
 
         return http.build();
@@ -0,0 +1,114 @@
+package com.example.demo.config;
+
+import com.example.demo.Services.MessageStamper;
+import com.example.demo.model.GroupMessage;
+import com.example.demo.model.Message;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.exists;
+import static com.mongodb.client.model.Projections.include;
+import static com.mongodb.client.model.Sorts.ascending;
+import static com.mongodb.client.model.Updates.combine;
+import static com.mongodb.client.model.Updates.inc;
+import static com.mongodb.client.model.Updates.set;
+
+/**
+ * Assigns sequence numbers (and sentAt, from the ID's timestamp) to direct and group messages saved
+ * before messages were stamped, since conversation and group history is paged by sequence. Per chat,
+ * unstamped messages take the next numbers of the chat's counter in ID order, so they come after any
+ * message that already has one. Only unstamped messages are read, so the job is a no-op once every
+ * message has a sequence; a run interrupted in the middle of a chat leaves a gap in its numbers.
+ * The {@code (chat, _id)} indexes replaced by {@code (chat, sequence)} ones are dropped.
+ */
+@Component
+@Order(3)
+@ConditionalOnProperty(name = "chat.migration.sequence.enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class SequenceBackfill implements StartupMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(SequenceBackfill.class);
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void migrate() {
+        long direct = backfill(mongoTemplate.getCollection(mongoTemplate.getCollectionName(Message.class)),
+                "conversationId", UnaryOperator.identity(), "conversation_id_idx");
+        long group = backfill(mongoTemplate.getCollection(mongoTemplate.getCollectionName(GroupMessage.class)),
+                "groupId", MessageStamper::groupKey, "group_id_idx");
+
+        if (direct + group > 0) {
+            log.info("Backfilled sequence numbers on {} direct and {} group messages", direct, group);
+        }
+    }
+
+    private long backfill(MongoCollection<Document> messages, String chatField, UnaryOperator<String> sequenceKey,
+                          String replacedIndex) {
+        var counters = mongoTemplate.getCollection(MessageStamper.SEQUENCES_COLLECTION);
+        var pending = and(exists("sequence", false), exists(chatField));
+        long updated = 0;
+
+        for (String chat : messages.distinct(chatField, pending, String.class)) {
+            var chatPending = and(eq(chatField, chat), exists("sequence", false));
+            long count = messages.countDocuments(chatPending);
+            if (count == 0) {
+                continue;
+            }
+            Document counter = counters.findOneAndUpdate(eq("_id", sequenceKey.apply(chat)), inc("sequence", count),
+                    new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+            long next = counter.get("sequence", Number.class).longValue() - count + 1;
+            long last = next + count - 1;
+
+            List<WriteModel<Document>> batch = new ArrayList<>(BATCH_SIZE);
+            for (Document message : messages.find(chatPending).projection(include("_id")).sort(ascending("_id"))
+                    .batchSize(BATCH_SIZE)) {
+                if (next > last) {
+                    break;  // Saved without a sequence since the count; left for the next run
+                }
+                Object id = message.get("_id");
+                var stamp = id instanceof ObjectId objectId
+                        ? combine(set("sequence", next), set("sentAt", objectId.getDate()))
+                        : set("sequence", next);
+                batch.add(new UpdateOneModel<>(and(eq("_id", id), exists("sequence", false)), stamp));
+                next++;
+
+                if (batch.size() == BATCH_SIZE) {
+                    updated += messages.bulkWrite(batch).getModifiedCount();
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                updated += messages.bulkWrite(batch).getModifiedCount();
+            }
+        }
+
+        for (Document index : messages.listIndexes()) {
+            if (replacedIndex.equals(index.getString("name"))) {
+                messages.dropIndex(replacedIndex);
+            }
+        }
+        return updated;
+    }
+}
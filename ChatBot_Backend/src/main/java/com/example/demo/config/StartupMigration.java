@@ -0,0 +1,11 @@
+package com.example.demo.config;
+
+/**
+ * A data migration that must be complete before the application serves requests. Migrations are
+ * run by {@link StartupMigrations} in {@link org.springframework.core.annotation.Order} order and
+ * must be safe to run again after an interrupted run.
+ */
+public interface StartupMigration {
+
+    void migrate();
+}
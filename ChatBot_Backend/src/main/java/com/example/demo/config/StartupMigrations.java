@@ -0,0 +1,34 @@
+package com.example.demo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Runs every {@link StartupMigration} once all beans are created and before the web server is
+ * started, so no request sees a half-migrated database. A failing migration aborts startup.
+ * Migrations run with the servlet stack only; the "reactive" profile expects a database it has migrated.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class StartupMigrations implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupMigrations.class);
+
+    @Autowired(required = false)
+    private List<StartupMigration> migrations = List.of();  // Sorted by @Order
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (StartupMigration migration : migrations) {
+            long start = System.nanoTime();
+            migration.migrate();
+            log.debug("{} finished in {} ms", migration.getClass().getSimpleName(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.demo.config;
+
+import com.example.demo.model.GroupMessage;
+import com.example.demo.model.Message;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Replaces the collection-wide text indexes on message content with ones prefixed by the chat,
+ * {@code {conversationId: 1, content: "text"}} and {@code {groupId: 1, content: "text"}}, so a search
+ * only scans the index entries of the chat it runs in. A collection can hold a single text index,
+ * so any other text index is dropped before the new one is built; once it exists the job is a no-op.
+ */
+@Component
+@Order(4)
+@ConditionalOnProperty(name = "chat.migration.text-index.enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class TextIndexMigration implements StartupMigration {
+
+    private static final String CONVERSATION_TEXT_INDEX = "conversation_text_idx";
+    private static final String GROUP_TEXT_INDEX = "group_text_idx";
+
+    private static final Logger log = LoggerFactory.getLogger(TextIndexMigration.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void migrate() {
+        replace(mongoTemplate.getCollection(mongoTemplate.getCollectionName(Message.class)),
+                "conversationId", CONVERSATION_TEXT_INDEX);
+        replace(mongoTemplate.getCollection(mongoTemplate.getCollectionName(GroupMessage.class)),
+                "groupId", GROUP_TEXT_INDEX);
+    }
+
+    private static void replace(MongoCollection<Document> messages, String chatField, String indexName) {
+        for (Document index : messages.listIndexes()) {
+            String name = index.getString("name");
+            if (indexName.equals(name)) {
+                return;
+            }
+            if (index.get("weights") != null || index.get("key", Document.class).containsValue("text")) {
+                messages.dropIndex(name);
+                log.info("Dropped text index {} on {}", name, messages.getNamespace().getCollectionName());
+            }
+        }
+        messages.createIndex(new Document(chatField, 1).append("content", "text"), new IndexOptions().name(indexName));
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// One row of a user's chat list: the latest message of a conversation or group and how many
+// messages the user has not read yet. Maintained incrementally on every send.
+@Data
+@Document(collection = "conversation_summaries")
+@CompoundIndex(name = "user_recent_idx", def = "{'userId': 1, 'lastSentAt': -1}")
+@CompoundIndex(name = "chat_idx", def = "{'chatType': 1, 'chatId': 1}")
+public class ConversationSummary {
+
+    public static final String DIRECT = "direct";
+    public static final String GROUP = "group";
+
+    @Id
+    private String id;                 // userId:chatType:chatId
+    private String userId;             // Owner of the chat list row
+    private String chatType;           // "direct" or "group"
+    private String chatId;             // Other user's ID for direct chats, group ID for groups
+    private String lastMessageId;
+    private String lastSenderId;
+    private String lastMessagePreview; // Start of the last message's content
+    private Instant lastSentAt;
+    private Long lastSequence;         // Sequence of the last message in its chat; only ever grows
+    private long unreadCount;
+
+    public static String idOf(String userId, String chatType, String chatId) {
+        return userId + ":" + chatType + ":" + chatId;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.demo.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -14,8 +15,8 @@ public class Group {
     @Id
     private String id;
     private String name;
+    @Indexed  // Multikey index for "which groups is this user in"
     private List<String> members = new ArrayList<>();
-    private List<Message> messages = new ArrayList<>();
     private LocalDateTime createdAt;  // Add createdAt field
 
     // Constructor with createdAt
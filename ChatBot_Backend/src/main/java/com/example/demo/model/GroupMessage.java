@@ -0,0 +1,111 @@
+package com.example.demo.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// A single message sent to a group. Stored one document per message so that sending
+// is an append-only insert instead of a rewrite of the whole group document.
+@Document(collection = "group_messages")
+@CompoundIndex(name = "group_sequence_idx", def = "{'groupId': 1, 'sequence': 1}")
+public class GroupMessage {
+
+    @Id
+    private String id;          // Unique identifier for the message
+    private String groupId;     // ID of the group the message belongs to
+    private String senderId;    // ID of the user who sent the message
+    private String receiverId;  // Receiver ID as supplied by the client (kept for compatibility)
+    private String content;     // Content of the message (text-indexed per group for search)
+    private String timestamp;   // Timestamp of when the message was sent, as supplied by the client
+    private Instant sentAt;     // Server time of sending
+    private Long sequence;      // Position within the group
+
+    public GroupMessage() {}
+
+    public GroupMessage(String groupId, Message message) {
+        this.id = message.getId();
+        this.groupId = groupId;
+        this.senderId = message.getSenderId();
+        this.receiverId = message.getReceiverId();
+        this.content = message.getContent();
+        this.timestamp = message.getTimestamp();
+        this.sentAt = message.getSentAt();
+        this.sequence = message.getSequence();
+    }
+
+    // Converts back to the Message shape returned by the REST API
+    public Message toMessage() {
+        Message message = new Message(senderId, receiverId, content, timestamp);
+        message.setId(id);
+        message.setSentAt(sentAt);
+        message.setSequence(sequence);
+        return message;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(String groupId) {
+        this.groupId = groupId;
+    }
+
+    public String getSenderId() {
+        return senderId;
+    }
+
+    public void setSenderId(String senderId) {
+        this.senderId = senderId;
+    }
+
+    public String getReceiverId() {
+        return receiverId;
+    }
+
+    public void setReceiverId(String receiverId) {
+        this.receiverId = receiverId;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(String timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public Instant getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(Instant sentAt) {
+        this.sentAt = sentAt;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.demo.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.time.Instant;
+
+// A copy of a group message in one member's inbox, written by fan-out-on-write delivery.
+// Keyed by message id per member, so an inbox page is one range scan of the user's entries.
+// Entries expire after 30 days; the group history keeps the message.
+@Data
+@Document(collection = "inbox")
+@CompoundIndex(name = "user_message_idx", def = "{'userId': 1, 'messageId': 1}", unique = true)
+public class InboxEntry {
+    @Id
+    private String id;
+    private String userId;     // Member whose inbox this is
+    private String groupId;    // Group the message was sent to
+    @Field(targetType = FieldType.OBJECT_ID)
+    private String messageId;  // ID of the group message (cursor for inbox pages)
+    private String senderId;
+    private String content;
+    private String timestamp;  // Timestamp as supplied by the client
+    @Indexed(name = "sent_at_ttl_idx", expireAfter = "30d")
+    private Instant sentAt;    // Server time of sending; entries expire 30 days after it
+    private Long sequence;     // Position within the group
+
+    public InboxEntry() {}
+
+    public InboxEntry(String userId, String groupId, Message message) {
+        this.userId = userId;
+        this.groupId = groupId;
+        this.messageId = message.getId();
+        this.senderId = message.getSenderId();
+        this.content = message.getContent();
+        this.timestamp = message.getTimestamp();
+        this.sentAt = message.getSentAt();
+        this.sequence = message.getSequence();
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.demo.model;
+
+// Compact shape of a Group for list responses (?view=lean): the member count instead of the member list
+public record LeanGroup(String id, String name, int memberCount) {
+
+    public static LeanGroup of(Group group) {
+        return new LeanGroup(group.getId(), group.getName(), group.getMembers() == null ? 0 : group.getMembers().size());
+    }
+}
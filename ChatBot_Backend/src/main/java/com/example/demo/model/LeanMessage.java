@@ -0,0 +1,16 @@
+package com.example.demo.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+// Compact shape of a Message for list responses (?view=lean): no client timestamp or
+// conversation ID (derivable from sender and receiver), null fields omitted
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record LeanMessage(String id, String senderId, String receiverId, String content, Instant sentAt, Long sequence) {
+
+    public static LeanMessage of(Message message) {
+        return new LeanMessage(message.getId(), message.getSenderId(), message.getReceiverId(),
+                message.getContent(), message.getSentAt(), message.getSequence());
+    }
+}
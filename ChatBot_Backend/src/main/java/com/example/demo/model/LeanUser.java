@@ -0,0 +1,9 @@
+package com.example.demo.model;
+
+// Compact shape of a User for list responses (?view=lean): no e-mail or friend lists
+public record LeanUser(String id, String name) {
+
+    public static LeanUser of(User user) {
+        return new LeanUser(user.getId(), user.getName());
+    }
+}
@@ -1,15 +1,27 @@
 package com.example.demo.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
+
+@Document(collection = "message")
+@CompoundIndex(name = "conversation_sequence_idx", def = "{'conversationId': 1, 'sequence': 1}")
+@CompoundIndex(name = "receiver_id_idx", def = "{'receiverId': 1, '_id': 1}")
+@CompoundIndex(name = "receiver_sent_at_idx", def = "{'receiverId': 1, 'sentAt': 1}")
+@CompoundIndex(name = "sender_id_idx", def = "{'senderId': 1, '_id': 1}")
 public class Message {
 
     @Id
     private String id;          // Unique identifier for the message
     private String senderId;    // ID of the user who sent the message
     private String receiverId;  // ID of the user receiving the message
-    private String content;     // Content of the message
-    private String timestamp;   // Timestamp of when the message was sent
+    private String content;     // Content of the message (text-indexed per conversation for search)
+    private String timestamp;   // Timestamp of when the message was sent, as supplied by the client
+    private String conversationId; // Order-independent key of the two participants, set on save
+    private Instant sentAt;     // Server time of sending, set on save
+    private Long sequence;      // Position within the conversation (or group), set on save; history is paged by it
 
     // Constructor with 4 parameters
     public Message(String senderId, String receiverId, String content, String timestamp) {
@@ -19,6 +31,13 @@ public class Message {
         this.timestamp = timestamp;
     }
 
+    // Builds the same key for (a, b) and (b, a) so a conversation is a single index range
+    public static String conversationIdOf(String userId, String otherUserId) {
+        return userId.compareTo(otherUserId) <= 0
+                ? userId + ":" + otherUserId
+                : otherUserId + ":" + userId;
+    }
+
     // Getters and Setters
     public String getId() {
         return id;
@@ -59,4 +78,28 @@ public class Message {
     public void setTimestamp(String timestamp) {
         this.timestamp = timestamp;
     }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public Instant getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(Instant sentAt) {
+        this.sentAt = sentAt;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
 }
@@ -1,5 +1,6 @@
 package com.example.demo.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -13,7 +14,8 @@ public class User {
     private String id;
     private String name;
     private String email;
-    private String password;
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)  // Accepted on register/login, never returned
+    private String password;  // Encoded password, e.g. "{bcrypt}$2a$10$..." (plaintext for users not yet migrated)
     private List<String> friends = new ArrayList<>(); // List of friend IDs
     private List<String> pendingFriendRequests = new ArrayList<>(); // List of pending friend request IDs
 
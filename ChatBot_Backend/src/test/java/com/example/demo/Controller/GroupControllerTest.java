@@ -0,0 +1,50 @@
+package com.example.demo.Controller;
+
+import com.example.demo.Services.GroupService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class GroupControllerTest {
+
+    private GroupService groupService;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        groupService = mock(GroupService.class);
+        Caller caller = new Caller();
+        ReflectionTestUtils.setField(caller, "groupService", groupService);
+
+        GroupController controller = new GroupController();
+        ReflectionTestUtils.setField(controller, "groupService", groupService);
+        ReflectionTestUtils.setField(controller, "caller", caller);
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void sequenceCursorsMayBeJsonNumbers() throws Exception {
+        mvc.perform(post("/groups/messages").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"groupId\": \"g\", \"after\": 41, \"limit\": 10}"))
+                .andExpect(status().isOk());
+
+        verify(groupService).getMessageHistory("g", "41", null, 10);
+    }
+
+    @Test
+    void sequenceCursorsMayBeStrings() throws Exception {
+        mvc.perform(post("/groups/messages").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"groupId\": \"g\", \"before\": \"41\"}"))
+                .andExpect(status().isOk());
+
+        verify(groupService).getMessageHistory("g", null, "41", null);
+    }
+}
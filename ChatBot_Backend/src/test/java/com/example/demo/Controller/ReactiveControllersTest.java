@@ -0,0 +1,156 @@
+package com.example.demo.Controller;
+
+import com.example.demo.Services.ReactiveChatService;
+import com.example.demo.model.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.boot.web.reactive.context.AnnotationConfigReactiveWebApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.config.EnableWebFlux;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveControllersTest {
+
+    private ReactiveChatService chatService;
+    private AnnotationConfigReactiveWebApplicationContext context;
+
+    @BeforeEach
+    void setUp() {
+        chatService = mock(ReactiveChatService.class);
+        when(chatService.sendMessage(any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(chatService.getAllMessages(any(), any(), any())).thenReturn(Flux.empty());
+        when(chatService.getConversation(anyString(), anyString(), any(), any(), any())).thenReturn(Flux.empty());
+        when(chatService.getGroupHistory(anyString(), any(), any(), any())).thenReturn(Flux.empty());
+        when(chatService.getSummaries(anyString(), any())).thenReturn(Flux.empty());
+        when(chatService.isMember("g", "alice")).thenReturn(Mono.just(true));
+        when(chatService.isMember("g", "mallory")).thenReturn(Mono.just(false));
+
+        context = new AnnotationConfigReactiveWebApplicationContext();
+        TestPropertyValues.of("chat.export.admin-token=secret").applyTo(context);
+        context.getBeanFactory().registerSingleton("reactiveChatService", chatService);
+        context.register(WebFlux.class, ReactiveCaller.class, ReactiveMessageController.class,
+                ReactiveGroupController.class, ReactiveConversationController.class);
+        context.refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void tokenUserCannotSendAsAnotherUser() {
+        as("mallory").post().uri("/messages/send").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"senderId\": \"alice\", \"receiverId\": \"bob\", \"content\": \"hi\"}")
+                .exchange()
+                .expectStatus().isForbidden();
+
+        verify(chatService, never()).sendMessage(any());
+    }
+
+    @Test
+    void messagesAreSentAsTheTokenUser() {
+        as("alice").post().uri("/messages/send").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"receiverId\": \"bob\", \"content\": \"hi\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Message.class).value(message -> assertThat(message.getSenderId()).isEqualTo("alice"));
+    }
+
+    @Test
+    void requestsWithoutATokenActForTheirIds() {
+        anonymous().get().uri("/conversations?userId=bob").exchange().expectStatus().isOk();
+
+        verify(chatService).getSummaries("bob", null);
+    }
+
+    @Test
+    void onlyParticipantsReadAConversation() {
+        as("mallory").get().uri("/messages/conversation?senderId=alice&receiverId=bob")
+                .exchange()
+                .expectStatus().isForbidden();
+        as("alice").get().uri("/messages/conversation?senderId=alice&receiverId=bob")
+                .exchange()
+                .expectStatus().isOk();
+
+        verify(chatService).getConversation("alice", "bob", null, null, null);
+    }
+
+    @Test
+    void listingAllMessagesWithATokenRequiresTheAdminToken() {
+        as("alice").get().uri("/messages/all").exchange().expectStatus().isForbidden();
+        as("alice").get().uri("/messages/all").header("X-Admin-Token", "wrong").exchange().expectStatus().isForbidden();
+        as("alice").get().uri("/messages/all").header("X-Admin-Token", "secret").exchange().expectStatus().isOk();
+
+        verify(chatService).getAllMessages(null, null, null);
+    }
+
+    @Test
+    void onlyMembersReadAGroup() {
+        as("mallory").post().uri("/groups/messages").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"groupId\": \"g\"}")
+                .exchange()
+                .expectStatus().isForbidden();
+        as("alice").post().uri("/groups/messages").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"groupId\": \"g\", \"after\": 41}")
+                .exchange()
+                .expectStatus().isOk();
+
+        verify(chatService).getGroupHistory("g", "41", null, null);
+    }
+
+    @Test
+    void creatorMustBeAMemberOfTheGroup() {
+        as("mallory").post().uri("/groups/create").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"name\": \"g\", \"members\": [\"alice\", \"bob\"]}")
+                .exchange()
+                .expectStatus().isForbidden();
+
+        verify(chatService, never()).createGroup(any());
+    }
+
+    @Test
+    void tokenUserCannotMarkAnotherUsersChatRead() {
+        as("mallory").post().uri("/conversations/read").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"userId\": \"alice\", \"chatType\": \"group\", \"chatId\": \"g\"}")
+                .exchange()
+                .expectStatus().isForbidden();
+
+        verify(chatService, never()).markRead(any(), any(), any());
+    }
+
+    private WebTestClient as(String userId) {
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(userId, null, List.of());
+        return WebTestClient.bindToApplicationContext(context)
+                .webFilter((exchange, chain) -> chain.filter(exchange)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication)))
+                .build();
+    }
+
+    private WebTestClient anonymous() {
+        return WebTestClient.bindToApplicationContext(context).build();
+    }
+
+    @Configuration
+    @EnableWebFlux
+    static class WebFlux {
+    }
+}
@@ -3,7 +3,14 @@ package com.example.demo;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = {
+		"spring.data.mongodb.auto-index-creation=false",
+		"chat.migration.group-messages.enabled=false",
+		"chat.migration.conversation-id.enabled=false",
+		"chat.migration.sequence.enabled=false",
+		"chat.migration.text-index.enabled=false",
+		"chat.migration.conversation-summaries.enabled=false"
+})
 class DemoApplicationTests {
 
 	@Test
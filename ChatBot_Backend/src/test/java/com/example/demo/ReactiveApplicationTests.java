@@ -0,0 +1,30 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+		"spring.main.web-application-type=reactive",
+		"spring.data.mongodb.auto-index-creation=false"
+})
+@ActiveProfiles("reactive")
+class ReactiveApplicationTests {
+
+	@Autowired
+	private ApplicationContext context;
+
+	@Test
+	void contextLoadsWithTheReactiveDriverOnly() {
+		assertThat(context.getBeanNamesForType(ReactiveMongoTemplate.class)).isNotEmpty();
+		assertThat(context.getBeanNamesForType(MongoTemplate.class)).isEmpty();
+		assertThat(context.getBeanNamesForType(com.mongodb.client.MongoClient.class)).isEmpty();
+	}
+
+}
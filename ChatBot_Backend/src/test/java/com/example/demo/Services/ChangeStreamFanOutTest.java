@@ -0,0 +1,177 @@
+package com.example.demo.Services;
+
+import com.example.demo.model.Message;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Cluster delivery against a real single-node replica set (change streams need one)
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(properties = {
+        "chat.cluster.change-streams.enabled=true",
+        "chat.cluster.node-id=test",
+        "chat.migration.group-messages.enabled=false",
+        "chat.migration.conversation-id.enabled=false",
+        "chat.migration.sequence.enabled=false",
+        "chat.migration.text-index.enabled=false",
+        "chat.migration.conversation-summaries.enabled=false"
+})
+class ChangeStreamFanOutTest {
+
+    @Container
+    static final MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> mongo.getReplicaSetUrl("chat"));
+    }
+
+    @Autowired
+    private MessageService messageService;
+    @Autowired
+    private MessagePushService messagePushService;
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final String sender = UUID.randomUUID().toString();
+    private final String receiver = UUID.randomUUID().toString();
+    private final WebSocketSession session = mock(WebSocketSession.class);
+
+    @BeforeEach
+    void awaitStream() throws InterruptedException {
+        // The stream opens in the background at startup; inserts made before it follows are not seen
+        long deadline = System.currentTimeMillis() + 30_000;
+        double events = directEvents();
+        while (directEvents() == events) {
+            assertThat(System.currentTimeMillis()).as("Change stream not following").isLessThan(deadline);
+            mongoTemplate.insert(stored(new Message("probe", UUID.randomUUID().toString(), "probe", null), 1));
+            Thread.sleep(200);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        messagePushService.unregister(session);
+    }
+
+    @Test
+    void aMessageSentOnThisNodeIsPushedOnce() throws Exception {
+        connect(receiver);
+        double events = directEvents();
+
+        messageService.sendMessage(new Message(sender, receiver, "hi", null));
+
+        await(() -> directEvents() > events);  // The change stream event has been handled as well
+        verify(session, timeout(2000)).sendMessage(any(TextMessage.class));
+        Thread.sleep(500);
+        verify(session, times(1)).sendMessage(any(TextMessage.class));
+    }
+
+    @Test
+    void aMessageSavedOnAnotherNodeIsPushedAndCached() throws Exception {
+        connect(receiver);
+        messageService.sendMessage(new Message(sender, receiver, "first", null));
+        String conversationId = Message.conversationIdOf(sender, receiver);
+        messageService.getConversation(sender, receiver, null, null, 10);  // Caches the latest page
+
+        mongoTemplate.insert(stored(new Message(sender, receiver, "from elsewhere", null), 2));
+
+        verify(session, timeout(5000)).sendMessage(argThat(frame -> frame instanceof TextMessage text
+                && text.getPayload().contains("from elsewhere")));
+        await(() -> {
+            List<Message> page = recentMessageCache.page(conversationId, newest());
+            return page != null && page.size() == 2;
+        });
+    }
+
+    @Test
+    void anEventThatCannotBeReadDoesNotStopTheStream() throws Exception {
+        connect(receiver);
+        mongoTemplate.getCollection("group_messages").insertOne(new Document("groupId", "g").append("sequence", "not a number"));
+
+        mongoTemplate.insert(stored(new Message(sender, receiver, "after the bad one", null), 1));
+
+        verify(session, timeout(5000)).sendMessage(argThat(frame -> frame instanceof TextMessage text
+                && text.getPayload().contains("after the bad one")));
+    }
+
+    @Test
+    void theResumeTokenIsSavedWhileNoMessagesArrive() throws Exception {
+        Thread.sleep(1500);  // Past chat.cluster.token-save-interval-ms, so the next save is not throttled
+        Object saved = savedToken();
+
+        // Writes elsewhere advance the oplog and with it the stream's post-batch token
+        mongoTemplate.getCollection("unwatched").insertOne(new Document("at", Instant.now().toString()));
+
+        await(() -> {
+            mongoTemplate.getCollection("unwatched").insertOne(new Document("at", Instant.now().toString()));
+            return !savedToken().equals(saved);
+        });
+    }
+
+    private void connect(String userId) {
+        when(session.getId()).thenReturn(UUID.randomUUID().toString());
+        when(session.isOpen()).thenReturn(true);
+        messagePushService.register(userId, session);
+    }
+
+    private Object savedToken() {
+        return mongoTemplate.findById("test", Document.class, ChangeStreamFanOut.TOKENS_COLLECTION).get("token");
+    }
+
+    private double directEvents() {
+        return meterRegistry.counter("chat.cluster.events", "collection", "message").count();
+    }
+
+    private static Message stored(Message message, long sequence) {
+        message.setId(new ObjectId().toHexString());
+        message.setConversationId(Message.conversationIdOf(message.getSenderId(), message.getReceiverId()));
+        message.setSequence(sequence);
+        message.setSentAt(Instant.now());
+        return message;
+    }
+
+    private static Pagination.Cursor<Long> newest() {
+        return new Pagination.Cursor<>(Pagination.FIRST_SEQUENCE, Long.MAX_VALUE, PageRequest.of(0, 10), true);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("Condition not met in time").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.demo.Services;
+
+import com.example.demo.config.ConversationSummaryBackfill;
+import com.example.demo.model.ConversationSummary;
+import com.example.demo.model.Group;
+import com.example.demo.model.GroupMessage;
+import com.example.demo.model.Message;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConversationSummaryServiceTest {
+
+    private MongoServer server;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private ConversationSummaryService summaries;
+
+    @BeforeEach
+    void setUp() {
+        server = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = server.bind();
+        client = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        mongoTemplate = new MongoTemplate(client, "summaries");
+
+        Pagination pagination = new Pagination();
+        ReflectionTestUtils.setField(pagination, "defaultPageSize", 50);
+        ReflectionTestUtils.setField(pagination, "maxPageSize", 200);
+
+        summaries = new ConversationSummaryService();
+        ReflectionTestUtils.setField(summaries, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(summaries, "pagination", pagination);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.shutdownNow();
+    }
+
+    @Test
+    void directSendsCountAsUnreadForTheReceiverOnly() {
+        summaries.directMessageSent(message("a", "b", 1, "hi"));
+        summaries.directMessageSent(message("b", "a", 2, "hello"));
+        summaries.directMessageSent(message("a", "b", 3, "how are you"));
+
+        ConversationSummary ofA = row("a", ConversationSummary.DIRECT, "b");
+        ConversationSummary ofB = row("b", ConversationSummary.DIRECT, "a");
+        assertThat(ofA.getUnreadCount()).isEqualTo(1);
+        assertThat(ofB.getUnreadCount()).isEqualTo(2);
+        assertThat(ofA.getLastMessagePreview()).isEqualTo("how are you");
+        assertThat(ofB.getLastSequence()).isEqualTo(3L);
+    }
+
+    @Test
+    void aDirectSendFinishingLateDoesNotReplaceANewerLastMessage() {
+        summaries.directMessageSent(message("a", "b", 2, "second"));
+        summaries.directMessageSent(message("a", "b", 1, "first"));
+
+        ConversationSummary ofB = row("b", ConversationSummary.DIRECT, "a");
+        assertThat(ofB.getLastMessagePreview()).isEqualTo("second");
+        assertThat(ofB.getLastSequence()).isEqualTo(2L);
+        assertThat(ofB.getUnreadCount()).isEqualTo(2);
+        assertThat(row("a", ConversationSummary.DIRECT, "b").getLastMessagePreview()).isEqualTo("second");
+    }
+
+    @Test
+    void aGroupSendFinishingLateOnlyCountsAsUnread() {
+        summaries.membersAdded("g", List.of("a", "b", "c"));
+
+        summaries.groupMessageSent("g", message("a", null, 5, "newest"));
+        summaries.groupMessageSent("g", message("b", null, 4, "older"));
+
+        for (String member : List.of("a", "b", "c")) {
+            ConversationSummary row = row(member, ConversationSummary.GROUP, "g");
+            assertThat(row.getLastMessagePreview()).isEqualTo("newest");
+            assertThat(row.getLastSequence()).isEqualTo(5L);
+        }
+        assertThat(row("a", ConversationSummary.GROUP, "g").getUnreadCount()).isEqualTo(1);
+        assertThat(row("b", ConversationSummary.GROUP, "g").getUnreadCount()).isEqualTo(1);
+        assertThat(row("c", ConversationSummary.GROUP, "g").getUnreadCount()).isEqualTo(2);
+    }
+
+    @Test
+    void rowsWithoutASequenceAreComparedBySendTime() {
+        Message earlier = message("a", "b", 1, "earlier");
+        earlier.setSequence(null);
+        Message later = message("a", "b", 2, "later");
+        later.setSequence(null);
+
+        summaries.directMessageSent(later);
+        summaries.directMessageSent(earlier);
+
+        assertThat(row("b", ConversationSummary.DIRECT, "a").getLastMessagePreview()).isEqualTo("later");
+    }
+
+    @Test
+    void backfillAddsRowsForMembersOfExistingGroups() {
+        Group group = new Group();
+        group.setName("g");
+        group.setMembers(List.of("a", "b"));
+        String groupId = mongoTemplate.insert(group).getId();
+        mongoTemplate.insert(new GroupMessage(groupId, message("a", null, 1, "old")));
+        mongoTemplate.insert(new GroupMessage(groupId, message("b", null, 2, "newest")));
+        // "a" already has a row with unread messages
+        summaries.membersAdded(groupId, List.of("a"));
+        mongoTemplate.getCollection("conversation_summaries").updateOne(
+                new Document("_id", ConversationSummary.idOf("a", ConversationSummary.GROUP, groupId)),
+                new Document("$set", new Document("unreadCount", 3L)));
+
+        ConversationSummaryBackfill backfill = new ConversationSummaryBackfill();
+        ReflectionTestUtils.setField(backfill, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(backfill, "conversationSummaryService", summaries);
+        backfill.migrate();
+        backfill.migrate();
+
+        ConversationSummary ofA = row("a", ConversationSummary.GROUP, groupId);
+        ConversationSummary ofB = row("b", ConversationSummary.GROUP, groupId);
+        assertThat(ofB.getLastMessagePreview()).isEqualTo("newest");
+        assertThat(ofB.getUnreadCount()).isZero();
+        assertThat(ofA.getLastMessagePreview()).isEqualTo("newest");
+        assertThat(ofA.getUnreadCount()).isEqualTo(3);
+        assertThat(mongoTemplate.count(ConversationSummaryService.groupRows(groupId), ConversationSummary.class))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void backfillAddsRowsForExistingDirectConversations() {
+        mongoTemplate.insert(message("a", "b", 1, "old"));
+        mongoTemplate.insert(message("b", "a", 2, "newest"));
+        mongoTemplate.insert(message("a", "c", 1, "hi c"));
+        summaries.directMessageSent(message("c", "a", 2, "hi a"));  // Already has its rows
+
+        ConversationSummaryBackfill backfill = new ConversationSummaryBackfill();
+        ReflectionTestUtils.setField(backfill, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(backfill, "conversationSummaryService", summaries);
+        backfill.migrate();
+        backfill.migrate();
+
+        for (String[] side : new String[][]{{"a", "b"}, {"b", "a"}}) {
+            ConversationSummary row = row(side[0], ConversationSummary.DIRECT, side[1]);
+            assertThat(row.getLastMessagePreview()).isEqualTo("newest");
+            assertThat(row.getLastSequence()).isEqualTo(2L);
+            assertThat(row.getUnreadCount()).isZero();
+        }
+        assertThat(row("a", ConversationSummary.DIRECT, "c").getUnreadCount()).isEqualTo(1);
+        assertThat(mongoTemplate.count(new Query(), ConversationSummary.class)).isEqualTo(4);
+    }
+
+    @Test
+    void onlyParticipantsCanMarkAChatRead() {
+        Group group = new Group();
+        group.setName("g");
+        group.setMembers(List.of("a", "b"));
+        String groupId = mongoTemplate.insert(group).getId();
+        mongoTemplate.insert(message("a", "b", 1, "hi"));
+
+        summaries.markRead("b", ConversationSummary.GROUP, groupId);
+        summaries.markRead("b", ConversationSummary.DIRECT, "a");
+
+        assertThatThrownBy(() -> summaries.markRead("c", ConversationSummary.GROUP, groupId))
+                .isInstanceOf(ResponseStatusException.class);
+        assertThatThrownBy(() -> summaries.markRead("c", ConversationSummary.DIRECT, "a"))
+                .isInstanceOf(ResponseStatusException.class);
+        assertThat(row("b", ConversationSummary.GROUP, groupId)).isNotNull();
+        assertThat(row("c", ConversationSummary.GROUP, groupId)).isNull();
+        assertThat(row("c", ConversationSummary.DIRECT, "a")).isNull();
+    }
+
+    private ConversationSummary row(String userId, String chatType, String chatId) {
+        return mongoTemplate.findById(ConversationSummary.idOf(userId, chatType, chatId), ConversationSummary.class);
+    }
+
+    private static Message message(String senderId, String receiverId, long sequence, String content) {
+        Message message = new Message(senderId, receiverId, content, null);
+        message.setId(new ObjectId().toHexString());
+        if (receiverId != null) {
+            message.setConversationId(Message.conversationIdOf(senderId, receiverId));
+        }
+        message.setSequence(sequence);
+        message.setSentAt(Instant.ofEpochSecond(1_700_000_000L + sequence));
+        return message;
+    }
+}
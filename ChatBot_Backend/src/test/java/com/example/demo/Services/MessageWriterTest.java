@@ -0,0 +1,211 @@
+package com.example.demo.Services;
+
+import com.example.demo.model.Message;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageWriterTest {
+
+    private static final int DUPLICATE_KEY = 11000;
+    private static final int DOCUMENT_VALIDATION_FAILURE = 121;
+
+    private MongoTemplate mongoTemplate;
+    private MessageStamper messageStamper;
+    private BulkOperations bulk;
+    private MessageWriter writer;
+
+    // Entities of the bulk insert currently being built
+    private final List<Object> inserted = new CopyOnWriteArrayList<>();
+    private final List<String> callbacks = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        messageStamper = mock(MessageStamper.class);
+        bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(Message.class))).thenReturn(bulk);
+        when(bulk.insert(anyList())).thenAnswer(invocation -> {
+            inserted.clear();
+            inserted.addAll(invocation.getArgument(0));
+            return bulk;
+        });
+
+        writer = new MessageWriter();
+        ReflectionTestUtils.setField(writer, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(writer, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(writer, "messageStamper", messageStamper);
+        ReflectionTestUtils.setField(writer, "mode", "batched");
+        ReflectionTestUtils.setField(writer, "ack", "flush");
+        ReflectionTestUtils.setField(writer, "batchSize", 3);
+        ReflectionTestUtils.setField(writer, "flushIntervalMs", 500L);
+        ReflectionTestUtils.setField(writer, "queueCapacity", 100);
+        ReflectionTestUtils.setField(writer, "enqueueTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(writer, "ackTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(writer, "callbackThreads", 2);
+        ReflectionTestUtils.setField(writer, "callbackQueueCapacity", 100);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.shutdown();
+    }
+
+    @Test
+    void eachMessageOfAFailedBulkInsertIsResolvedOnItsOwn() throws Exception {
+        // "dup" was stored by an earlier attempt, "bad" is rejected by the server
+        when(bulk.execute()).thenAnswer(invocation -> {
+            throw bulkFailure(List.of(
+                    error(DUPLICATE_KEY, indexOf("dup")),
+                    error(DOCUMENT_VALIDATION_FAILURE, indexOf("bad"))));
+        });
+        writer.start();
+
+        CompletableFuture<Void> ok = send("ok");
+        CompletableFuture<Void> dup = send("dup");
+        CompletableFuture<Void> bad = send("bad");
+
+        ok.get(5, TimeUnit.SECONDS);
+        dup.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> bad.get(5, TimeUnit.SECONDS)).hasRootCauseMessage(
+                "Message could not be saved: rejected");
+        writer.shutdown();
+        assertThat(callbacks).containsExactlyInAnyOrder("ok", "dup");
+        verify(messageStamper).stamp(inserted);
+        // Only the rejected message gives its sequence number back
+        verify(messageStamper).release(List.of(inserted.get(indexOf("bad"))));
+    }
+
+    @Test
+    void aBatchWithAnUnknownOutcomeFailsEveryMessage() {
+        when(bulk.execute()).thenThrow(new DataAccessResourceFailureException("connection reset"));
+        writer.start();
+
+        List<CompletableFuture<Void>> sends = List.of(send("a"), send("b"), send("c"));
+
+        for (CompletableFuture<Void> sent : sends) {
+            assertThatThrownBy(() -> sent.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("connection reset");
+        }
+        assertThat(callbacks).isEmpty();
+    }
+
+    @Test
+    void callbacksRunOffTheWriterThreadInWriteOrder() throws InterruptedException {
+        ReflectionTestUtils.setField(writer, "ack", "enqueue");
+        List<String> threads = new CopyOnWriteArrayList<>();
+        writer.start();
+
+        for (int i = 0; i < 50; i++) {
+            String content = String.valueOf(i);
+            writer.write(message("a:b", content), () -> {
+                threads.add(Thread.currentThread().getName());
+                callbacks.add(content);
+            });
+        }
+        writer.shutdown();
+
+        assertThat(callbacks).containsExactlyElementsOf(
+                IntStream.range(0, 50).mapToObj(String::valueOf).toList());
+        assertThat(threads).allMatch("message-written"::equals);
+    }
+
+    @Test
+    void syncWriteSucceedsWhenItsCallbackFails() {
+        ReflectionTestUtils.setField(writer, "mode", "sync");
+        writer.start();
+        Message message = message("a:b", "hi");
+
+        writer.write(message, () -> {
+            throw new IllegalStateException("push failed");
+        });
+
+        InOrder inOrder = inOrder(messageStamper, mongoTemplate);
+        inOrder.verify(messageStamper).stamp(List.of(message));
+        inOrder.verify(mongoTemplate).insert(message);
+    }
+
+    @Test
+    void syncWriteRejectedByTheServerReleasesItsSequence() {
+        ReflectionTestUtils.setField(writer, "mode", "sync");
+        writer.start();
+        Message message = message("a:b", "hi");
+        doThrow(new DataIntegrityViolationException("rejected")).when(mongoTemplate).insert(any(Object.class));
+
+        assertThatThrownBy(() -> writer.write(message, () -> callbacks.add("hi")))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        verify(messageStamper).release(List.of(message));
+    }
+
+    @Test
+    void syncWriteFailurePropagatesWithoutRunningTheCallback() {
+        ReflectionTestUtils.setField(writer, "mode", "sync");
+        writer.start();
+        doThrow(new DataAccessResourceFailureException("down")).when(mongoTemplate).insert(any(Object.class));
+
+        assertThatThrownBy(() -> writer.write(message("a:b", "hi"), () -> callbacks.add("hi")))
+                .hasMessage("down");
+        assertThat(callbacks).isEmpty();
+        // The write may have reached the server: its sequence number is not given back
+        verify(messageStamper, never()).release(any());
+    }
+
+    private CompletableFuture<Void> send(String content) {
+        return CompletableFuture.runAsync(() ->
+                writer.write(message("a:" + content, content), () -> callbacks.add(content)));
+    }
+
+    private int indexOf(String content) {
+        return inserted.stream().map(entity -> ((Message) entity).getContent()).toList().indexOf(content);
+    }
+
+    private static Message message(String conversationId, String content) {
+        Message message = new Message("a", "b", content, null);
+        message.setId(new ObjectId().toHexString());
+        message.setConversationId(conversationId);
+        return message;
+    }
+
+    private static BulkWriteError error(int code, int index) {
+        return new BulkWriteError(code, code == DUPLICATE_KEY ? "duplicate key" : "rejected", new BsonDocument(), index);
+    }
+
+    private static BulkOperationException bulkFailure(List<BulkWriteError> errors) {
+        return new BulkOperationException("Bulk write failed", new MongoBulkWriteException(
+                BulkWriteResult.unacknowledged(), errors, null, new ServerAddress(), Set.of()));
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.demo.Services;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PaginationTest {
+
+    private Pagination pagination;
+
+    @BeforeEach
+    void setUp() {
+        pagination = new Pagination();
+        ReflectionTestUtils.setField(pagination, "defaultPageSize", 50);
+        ReflectionTestUtils.setField(pagination, "maxPageSize", 200);
+    }
+
+    @Test
+    void pageSizeDefaultsAndIsCapped() {
+        assertThat(pagination.pageSize(null)).isEqualTo(50);
+        assertThat(pagination.pageSize(0)).isEqualTo(50);
+        assertThat(pagination.pageSize(-5)).isEqualTo(50);
+        assertThat(pagination.pageSize(20)).isEqualTo(20);
+        assertThat(pagination.pageSize(10_000)).isEqualTo(200);
+    }
+
+    @Test
+    void withoutCursorsReturnsNewestFirstOverTheWholeRange() {
+        Pagination.Cursor<ObjectId> cursor = pagination.of(null, null, 10);
+
+        assertThat(cursor.newestFirst()).isTrue();
+        assertThat(cursor.after()).isEqualTo(new ObjectId(Pagination.START));
+        assertThat(cursor.before()).isEqualTo(new ObjectId("ffffffffffffffffffffffff"));
+        assertThat(cursor.pageable().getPageSize()).isEqualTo(10);
+        assertThat(cursor.pageable().getSort().getOrderFor("id").getDirection()).isEqualTo(Sort.Direction.DESC);
+    }
+
+    @Test
+    void afterCursorReadsOldestFirst() {
+        String after = new ObjectId().toHexString();
+        Pagination.Cursor<ObjectId> cursor = pagination.of(after, null, null);
+
+        assertThat(cursor.newestFirst()).isFalse();
+        assertThat(cursor.after()).isEqualTo(new ObjectId(after));
+        assertThat(cursor.pageable().getSort().getOrderFor("id").getDirection()).isEqualTo(Sort.Direction.ASC);
+    }
+
+    @Test
+    void chronologicalReversesOnlyNewestFirstPages() {
+        List<String> newestFirst = List.of("c", "b", "a");
+
+        assertThat(pagination.of(null, null, 3).chronological(newestFirst)).containsExactly("a", "b", "c");
+        assertThat(pagination.of(Pagination.START, null, 3).chronological(List.of("a", "b"))).containsExactly("a", "b");
+    }
+
+    @Test
+    void sequenceCursorsPageBySequenceNumber() {
+        Pagination.Cursor<Long> latest = pagination.bySequence(null, "40", 10);
+        assertThat(latest.after()).isEqualTo(Pagination.FIRST_SEQUENCE);
+        assertThat(latest.before()).isEqualTo(40L);
+        assertThat(latest.newestFirst()).isTrue();
+        assertThat(latest.pageable().getSort().getOrderFor("sequence").getDirection()).isEqualTo(Sort.Direction.DESC);
+
+        Pagination.Cursor<Long> following = pagination.bySequence("12", null, 10);
+        assertThat(following.after()).isEqualTo(12L);
+        assertThat(following.before()).isEqualTo(Long.MAX_VALUE);
+        assertThat(following.pageable().getSort().getOrderFor("sequence").getDirection()).isEqualTo(Sort.Direction.ASC);
+    }
+
+    @Test
+    void malformedCursorIsABadRequest() {
+        assertThatThrownBy(() -> pagination.of("not-an-id", null, null))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(e -> assertThat(((ResponseStatusException) e).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThatThrownBy(() -> pagination.of(null, "123", null))
+                .isInstanceOf(ResponseStatusException.class);
+        assertThatThrownBy(() -> pagination.bySequence(new ObjectId().toHexString(), null, null))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.demo.Services;
+
+import com.example.demo.model.ConversationSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PresenceServiceTest {
+
+    private static final long TTL_MS = 30_000;
+    private static final long TYPING_TTL_MS = 5_000;
+    private static final long TICK_MS = 1_000;
+
+    private final ManualClock clock = new ManualClock(1_700_000_000_000L);
+    private MessagePushService messagePushService;
+    private GroupService groupService;
+    private PresenceService presence;
+
+    @BeforeEach
+    void setUp() {
+        messagePushService = mock(MessagePushService.class);
+        groupService = mock(GroupService.class);
+        when(groupService.isMember("g", "a")).thenReturn(true);
+        when(groupService.isMember("g", "b")).thenReturn(true);
+
+        presence = new PresenceService(TTL_MS, TYPING_TTL_MS, TICK_MS, new SimpleMeterRegistry(), clock);
+        ReflectionTestUtils.setField(presence, "messagePushService", messagePushService);
+        ReflectionTestUtils.setField(presence, "groupService", groupService);
+    }
+
+    @Test
+    void usersAreOnlineUntilTheTtlAfterTheirLastHeartbeat() {
+        presence.heartbeat("a");
+        clock.advance(TTL_MS - 1);
+        presence.tick();
+        assertThat(presence.isOnline("a")).isTrue();
+
+        presence.heartbeat("a");  // Refreshed: the scheduled entry is moved on when its slot comes up
+        clock.advance(TTL_MS - 1);
+        presence.tick();
+        assertThat(presence.getOnline(List.of("a", "b"))).isEqualTo(Map.of("a", true, "b", false));
+
+        clock.advance(TICK_MS + 1);
+        presence.tick();
+        assertThat(presence.isOnline("a")).isFalse();
+        assertThat(online()).isEmpty();
+    }
+
+    @Test
+    void typingInAGroupIsSeenByOtherMembersUntilItExpires() {
+        assertThat(presence.typing("a", ConversationSummary.GROUP, "g")).isTrue();
+
+        assertThat(presence.getTyping("b", ConversationSummary.GROUP, "g")).containsExactly("a");
+        assertThat(presence.getTyping("a", ConversationSummary.GROUP, "g")).isEmpty();
+        assertThat(presence.isOnline("a")).isTrue();
+        verify(messagePushService).publishTyping("a", ConversationSummary.GROUP, "g");
+
+        clock.advance(TYPING_TTL_MS + TICK_MS);
+        presence.tick();
+        assertThat(presence.getTyping("b", ConversationSummary.GROUP, "g")).isEmpty();
+        assertThat(typingChats()).isEmpty();
+    }
+
+    @Test
+    void typingInADirectChatIsSeenByTheOtherUser() {
+        presence.typing("a", ConversationSummary.DIRECT, "b");
+
+        assertThat(presence.getTyping("b", ConversationSummary.DIRECT, "a")).containsExactly("a");
+        assertThat(presence.getTyping("c", ConversationSummary.DIRECT, "a")).isEmpty();
+    }
+
+    @Test
+    void nonMembersCannotTypeInOrWatchAGroup() {
+        when(groupService.isMember(anyString(), anyString())).thenReturn(false);
+
+        assertThat(presence.typing("c", ConversationSummary.GROUP, "h")).isFalse();
+
+        verify(messagePushService, never()).publishTyping(anyString(), anyString(), anyString());
+        assertThat(presence.isOnline("c")).isFalse();
+        assertThatThrownBy(() -> presence.getTyping("c", ConversationSummary.GROUP, "h"))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void unknownChatTypesAreRejected() {
+        assertThatThrownBy(() -> presence.typing("a", "channel", "g")).isInstanceOf(ResponseStatusException.class);
+        assertThat(PresenceService.isChatType("channel")).isFalse();
+        assertThat(PresenceService.isChatType(ConversationSummary.DIRECT)).isTrue();
+    }
+
+    @Test
+    void typingAgainAfterTheChatExpiredStartsANewEntry() {
+        presence.typing("a", ConversationSummary.GROUP, "g");
+        clock.advance(TYPING_TTL_MS + TICK_MS);
+        presence.tick();
+        assertThat(typingChats()).isEmpty();
+
+        presence.typing("a", ConversationSummary.GROUP, "g");
+        assertThat(presence.getTyping("b", ConversationSummary.GROUP, "g")).containsExactly("a");
+
+        clock.advance(TYPING_TTL_MS + TICK_MS);
+        presence.tick();
+        assertThat(typingChats()).isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Long> online() {
+        return (Map<String, Long>) ReflectionTestUtils.getField(presence, "onlineUntil");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, ?> typingChats() {
+        return (Map<String, ?>) ReflectionTestUtils.getField(presence, "typingUntil");
+    }
+
+    private static final class ManualClock extends Clock {
+
+        private long millis;
+
+        ManualClock(long millis) {
+            this.millis = millis;
+        }
+
+        void advance(long ms) {
+            millis += ms;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
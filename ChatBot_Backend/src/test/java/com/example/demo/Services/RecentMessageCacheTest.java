@@ -0,0 +1,161 @@
+package com.example.demo.Services;
+
+import com.example.demo.model.Message;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentMessageCacheTest {
+
+    @Test
+    void messagesAreKeptInSequenceOrderWhateverOrderTheyArriveIn() {
+        RecentMessageCache.Recent recent = new RecentMessageCache.Recent(10);
+        recent.fill(messages(1, 4), true);
+
+        recent.add(message(6));
+        recent.add(message(5));
+        recent.add(message(7));
+        recent.add(message(6));  // Already present
+
+        assertThat(sequences(recent.snapshot())).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L);
+    }
+
+    @Test
+    void aFullBufferDropsItsOldestMessageAndIgnoresOlderOnes() {
+        RecentMessageCache.Recent recent = new RecentMessageCache.Recent(3);
+        recent.fill(messages(1, 3), true);
+
+        recent.add(message(4));
+        recent.add(message(1));
+
+        assertThat(sequences(recent.snapshot())).containsExactly(2L, 3L, 4L);
+        // No longer the whole chat: a page reaching past the oldest kept message goes to MongoDB
+        assertThat(recent.page(newestFirst(Long.MAX_VALUE, 5))).isNull();
+        assertThat(recent.page(after(Pagination.FIRST_SEQUENCE, 2))).isNull();
+    }
+
+    @Test
+    void newestFirstPagesEndBeforeTheCursor() {
+        RecentMessageCache.Recent recent = new RecentMessageCache.Recent(10);
+        recent.fill(messages(1, 10), false);
+
+        assertThat(sequences(recent.page(newestFirst(Long.MAX_VALUE, 3)))).containsExactly(8L, 9L, 10L);
+        assertThat(sequences(recent.page(newestFirst(8, 3)))).containsExactly(5L, 6L, 7L);
+        assertThat(recent.page(newestFirst(3, 3))).isNull();  // Only 2 cached, older ones may exist
+    }
+
+    @Test
+    void afterPagesStartAfterTheCursorAndStopAtBefore() {
+        RecentMessageCache.Recent recent = new RecentMessageCache.Recent(10);
+        recent.fill(messages(3, 10), false);
+
+        assertThat(sequences(recent.page(after(4, 3)))).containsExactly(5L, 6L, 7L);
+        assertThat(sequences(recent.page(new Pagination.Cursor<>(8L, 10L, PageRequest.of(0, 5), false))))
+                .containsExactly(9L);
+        assertThat(sequences(recent.page(after(10, 3)))).isEmpty();
+        assertThat(recent.page(after(1, 3))).isNull();  // Sequence 2 is not cached
+    }
+
+    @Test
+    void aBufferHoldingTheWholeChatAnswersEveryWindow() {
+        RecentMessageCache.Recent recent = new RecentMessageCache.Recent(10);
+        recent.fill(messages(1, 4), true);
+
+        assertThat(sequences(recent.page(after(Pagination.FIRST_SEQUENCE, 3)))).containsExactly(1L, 2L, 3L);
+        assertThat(sequences(recent.page(newestFirst(3, 5)))).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void onlyLoadedBuffersServePages() {
+        RecentMessageCache.Recent recent = new RecentMessageCache.Recent(10);
+        recent.add(message(1));
+
+        assertThat(recent.page(newestFirst(Long.MAX_VALUE, 1))).isNull();
+    }
+
+    @Test
+    void messagesAppendedWhileLoadingAreKept() {
+        RecentMessageCache cache = cache(60_000);
+
+        List<Message> latest = cache.loadLatest("a:b", 2, capacity -> {
+            cache.append("a:b", message(4));  // Written after the loader's query ran
+            return messages(1, 3);
+        });
+
+        assertThat(sequences(latest)).containsExactly(3L, 4L);
+        assertThat(sequences(cache.page("a:b", newestFirst(Long.MAX_VALUE, 10)))).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(cache.page("a:c", newestFirst(Long.MAX_VALUE, 10))).isNull();
+    }
+
+    @Test
+    void unstampedMessagesDropTheChatsBufferInsteadOfBeingCached() {
+        RecentMessageCache cache = cache(60_000);
+        cache.loadLatest("a:b", 5, capacity -> messages(1, 3));
+
+        cache.append("a:b", new Message("a", "b", "legacy", null));
+
+        assertThat(cache.page("a:b", newestFirst(Long.MAX_VALUE, 10))).isNull();
+        List<Message> latest = cache.loadLatest("a:c", 5, capacity -> List.of(new Message("a", "c", "legacy", null)));
+        assertThat(latest).hasSize(1);
+        assertThat(cache.page("a:c", newestFirst(Long.MAX_VALUE, 10))).isNull();
+    }
+
+    @Test
+    void callersGetCopiesOfTheCachedMessages() {
+        RecentMessageCache cache = cache(60_000);
+        Message appended = message(4);
+        cache.loadLatest("a:b", 5, capacity -> messages(1, 3)).get(0).setContent("changed");
+        cache.append("a:b", appended);
+        appended.setContent("changed");
+        cache.page("a:b", newestFirst(Long.MAX_VALUE, 10)).get(1).setContent("changed");
+
+        assertThat(cache.page("a:b", newestFirst(Long.MAX_VALUE, 10)))
+                .extracting(Message::getContent)
+                .containsExactly("message 1", "message 2", "message 3", "message 4");
+    }
+
+    @Test
+    void buffersExpireTheTtlAfterTheyWereLoadedEvenWhenAppendedTo() throws InterruptedException {
+        RecentMessageCache cache = cache(50);
+        cache.loadLatest("a:b", 5, capacity -> messages(1, 3));
+        Thread.sleep(30);
+        cache.append("a:b", message(4));
+        Thread.sleep(30);
+
+        assertThat(cache.page("a:b", newestFirst(Long.MAX_VALUE, 10))).isNull();
+    }
+
+    private static RecentMessageCache cache(long ttlMs) {
+        return new RecentMessageCache(true, 5, 1 << 20, ttlMs, new SimpleMeterRegistry());
+    }
+
+    private static Pagination.Cursor<Long> newestFirst(long before, int size) {
+        return new Pagination.Cursor<>(Pagination.FIRST_SEQUENCE, before, PageRequest.of(0, size), true);
+    }
+
+    private static Pagination.Cursor<Long> after(long after, int size) {
+        return new Pagination.Cursor<>(after, Long.MAX_VALUE, PageRequest.of(0, size), false);
+    }
+
+    private static List<Message> messages(long first, long last) {
+        return LongStream.rangeClosed(first, last).mapToObj(RecentMessageCacheTest::message).toList();
+    }
+
+    private static Message message(long sequence) {
+        Message message = new Message("a", "b", "message " + sequence, null);
+        message.setSequence(sequence);
+        return message;
+    }
+
+    private static List<Long> sequences(List<Message> messages) {
+        List<Long> sequences = new ArrayList<>();
+        messages.forEach(message -> sequences.add(message.getSequence()));
+        return sequences;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.demo.Services;
+
+import com.example.demo.Repository.GroupMessageRepository;
+import com.example.demo.Repository.MessageRepository;
+import com.example.demo.model.Message;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SyncServiceTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T12:00:00Z");
+    private static final long LAG_MS = 5000;
+
+    private MessageRepository messageRepository;
+    private SyncService syncService;
+
+    @BeforeEach
+    void setUp() {
+        messageRepository = mock(MessageRepository.class);
+        when(messageRepository.findConversationPage(anyString(), anyLong(), anyLong(), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        Pagination pagination = new Pagination();
+        ReflectionTestUtils.setField(pagination, "defaultPageSize", 2);
+        ReflectionTestUtils.setField(pagination, "maxPageSize", 200);
+
+        syncService = new SyncService();
+        ReflectionTestUtils.setField(syncService, "messageRepository", messageRepository);
+        ReflectionTestUtils.setField(syncService, "groupMessageRepository", mock(GroupMessageRepository.class));
+        ReflectionTestUtils.setField(syncService, "groupService", mock(GroupService.class));
+        ReflectionTestUtils.setField(syncService, "pagination", pagination);
+        ReflectionTestUtils.setField(syncService, "sinceLagMs", LAG_MS);
+        syncService.clock = Clock.fixed(NOW, ZoneOffset.UTC);
+    }
+
+    @Test
+    void conversationWatermarkIsTheLastSequenceReturned() {
+        when(messageRepository.findConversationPage(eq("a:b"), eq(4L), eq(Long.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(List.of(message("b", 5), message("b", 6)));
+        when(messageRepository.findConversationPage(eq("a:c"), eq(9L), eq(Long.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        SyncService.SyncResponse response = sync(Map.of("b", "4", "c", "9"), null);
+
+        assertThat(response.conversations().get("b").watermark()).isEqualTo("6");
+        assertThat(response.conversations().get("b").hasMore()).isTrue();
+        assertThat(response.conversations().get("c").watermark()).isEqualTo("9");
+        assertThat(response.conversations().get("c").hasMore()).isFalse();
+        assertThat(response.since()).isNull();
+    }
+
+    @Test
+    void newSendersAreSyncedFromTheStartAndSinceSettlesBehindTheClock() {
+        Instant since = NOW.minusSeconds(60);
+        when(messageRepository.findSendersSince("a", since, 2))
+                .thenReturn(List.of(new MessageRepository.Sender("c", NOW.minusSeconds(1))));
+        when(messageRepository.findConversationPage(eq("a:c"), eq(Pagination.FIRST_SEQUENCE), eq(Long.MAX_VALUE),
+                any(Pageable.class))).thenReturn(List.of(message("c", 1)));
+
+        SyncService.SyncResponse response = sync(Map.of(), String.valueOf(since.toEpochMilli()));
+
+        assertThat(response.conversations()).containsOnlyKeys("c");
+        assertThat(response.conversations().get("c").watermark()).isEqualTo("1");
+        // The last sender's message is newer than the lag: the next call looks at it again
+        assertThat(response.since()).isEqualTo(String.valueOf(NOW.minusMillis(LAG_MS).toEpochMilli()));
+        assertThat(response.sinceHasMore()).isFalse();
+    }
+
+    @Test
+    void sinceAdvancesPastSendersTheClientAlreadyLists() {
+        Instant since = NOW.minusSeconds(600);
+        Instant lastListed = NOW.minusSeconds(300);
+        when(messageRepository.findSendersSince("a", since, 2)).thenReturn(List.of(
+                new MessageRepository.Sender("b", NOW.minusSeconds(400)),
+                new MessageRepository.Sender("c", lastListed)));
+
+        SyncService.SyncResponse response = sync(Map.of("b", "3", "c", "7"), String.valueOf(since.toEpochMilli()));
+
+        // Already listed: synced once, by their own watermarks
+        verify(messageRepository, never()).findConversationPage(
+                anyString(), eq(Pagination.FIRST_SEQUENCE), anyLong(), any(Pageable.class));
+        assertThat(response.sinceHasMore()).isTrue();
+        assertThat(response.since()).isEqualTo(String.valueOf(lastListed.toEpochMilli()));
+    }
+
+    @Test
+    void aFullPageWithinTheLagStillMovesSinceForward() {
+        Instant since = NOW.minusMillis(100);
+        when(messageRepository.findSendersSince(eq("a"), eq(since), anyInt())).thenReturn(List.of(
+                new MessageRepository.Sender("b", NOW.minusMillis(50)),
+                new MessageRepository.Sender("c", NOW.minusMillis(10))));
+
+        SyncService.SyncResponse response = sync(Map.of(), String.valueOf(since.toEpochMilli()));
+
+        assertThat(response.sinceHasMore()).isTrue();
+        assertThat(response.since()).isEqualTo(String.valueOf(NOW.minusMillis(10).toEpochMilli()));
+    }
+
+    @Test
+    void sinceNeverMovesBackwards() {
+        Instant since = NOW.minusMillis(100);
+        when(messageRepository.findSendersSince(eq("a"), eq(since), anyInt())).thenReturn(List.of());
+
+        SyncService.SyncResponse response = sync(Map.of(), String.valueOf(since.toEpochMilli()));
+
+        assertThat(response.since()).isEqualTo(String.valueOf(since.toEpochMilli()));
+        assertThat(response.sinceHasMore()).isFalse();
+    }
+
+    @Test
+    void messageIdSinceIsReadAsItsTimestamp() {
+        ObjectId id = new ObjectId(Date.from(NOW.minusSeconds(3600)));
+        when(messageRepository.findSendersSince(eq("a"), any(Instant.class), anyInt())).thenReturn(List.of());
+
+        sync(Map.of(), id.toHexString());
+
+        verify(messageRepository).findSendersSince("a", NOW.minusSeconds(3600), 2);
+        assertThatThrownBy(() -> sync(Map.of(), "yesterday")).isInstanceOf(ResponseStatusException.class);
+    }
+
+    private SyncService.SyncResponse sync(Map<String, String> conversations, String since) {
+        return syncService.sync(new SyncService.SyncRequest("a", conversations, null, since, null));
+    }
+
+    private static Message message(String senderId, long sequence) {
+        Message message = new Message(senderId, "a", "hi", null);
+        message.setSequence(sequence);
+        return message;
+    }
+}
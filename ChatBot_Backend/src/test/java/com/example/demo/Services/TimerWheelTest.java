@@ -0,0 +1,64 @@
+package com.example.demo.Services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimerWheelTest {
+
+    private static final long TICK_MS = 100;
+
+    private final List<String> due = new ArrayList<>();
+
+    @Test
+    void entriesComeDueInTheTickAfterTheirDeadline() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK_MS, 5, 0, (entry, now) -> due.add(entry + "@" + now));
+        wheel.schedule("a", 150);
+        wheel.schedule("b", 250);
+
+        wheel.advance(199);
+        assertThat(due).isEmpty();
+
+        wheel.advance(200);
+        assertThat(due).containsExactly("a@200");
+
+        wheel.advance(310);
+        assertThat(due).containsExactly("a@200", "b@310");
+    }
+
+    @Test
+    void aLateAdvanceProcessesEveryPassedSlot() {
+        TimerWheel<String> wheel = new TimerWheel<>(TICK_MS, 5, 0, (entry, now) -> due.add(entry));
+        wheel.schedule("a", 50);
+        wheel.schedule("b", 350);
+
+        wheel.advance(450);
+
+        assertThat(due).containsExactly("a", "b");
+    }
+
+    @Test
+    void anEntryRescheduledIntoItsOwnSlotWaitsForTheNextRevolution() {
+        List<TimerWheel<String>> self = new ArrayList<>();
+        TimerWheel<String> wheel = new TimerWheel<>(TICK_MS, 5, 0, (entry, now) -> {
+            due.add(entry + "@" + now);
+            if (due.size() == 1) {
+                self.get(0).schedule(entry, now + 4 * TICK_MS);  // Maps to the slot being processed
+            }
+        });
+        self.add(wheel);
+        wheel.schedule("a", 50);
+
+        wheel.advance(100);
+        assertThat(due).containsExactly("a@100");
+
+        wheel.advance(500);
+        assertThat(due).containsExactly("a@100");
+
+        wheel.advance(600);
+        assertThat(due).containsExactly("a@100", "a@600");
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.demo.config;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Sorts.ascending;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GroupMessageMigrationTest {
+
+    private MongoServer server;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        server = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = server.bind();
+        client = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        mongoTemplate = new MongoTemplate(client, "migration");
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.shutdownNow();
+    }
+
+    @Test
+    void migratedGroupsKeepTheirOrderOnceSequenced() {
+        ObjectId groupId = new ObjectId();
+        List<String> contents = new ArrayList<>();
+        List<Document> embedded = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            contents.add("message " + i);
+            embedded.add(new Document("senderId", "a").append("content", "message " + i));
+        }
+        mongoTemplate.getCollection("groups").insertOne(new Document("_id", groupId).append("messages", embedded));
+
+        migrate();
+        migrate();  // Already migrated: nothing is copied twice
+
+        List<String> history = new ArrayList<>();
+        List<Long> sequences = new ArrayList<>();
+        mongoTemplate.getCollection("group_messages").find(eq("groupId", groupId.toHexString()))
+                .sort(ascending("sequence"))
+                .forEach(message -> {
+                    history.add(message.getString("content"));
+                    sequences.add(message.get("sequence", Number.class).longValue());
+                });
+        assertThat(history).isEqualTo(contents);
+        assertThat(sequences).first().isEqualTo(1L);
+        assertThat(sequences).last().isEqualTo(300L);
+    }
+
+    @Test
+    void migratedIdsSortByPositionWithinAGroupAndDifferAcrossGroups() {
+        ObjectId group = new ObjectId();
+        ObjectId other = new ObjectId();
+
+        assertThat(GroupMessageMigration.migratedId(group, 255)).isLessThan(GroupMessageMigration.migratedId(group, 256));
+        assertThat(GroupMessageMigration.migratedId(group, 0)).isEqualTo(GroupMessageMigration.migratedId(group, 0));
+        assertThat(GroupMessageMigration.migratedId(group, 0)).isNotEqualTo(GroupMessageMigration.migratedId(other, 0));
+    }
+
+    private void migrate() {
+        GroupMessageMigration migration = new GroupMessageMigration();
+        ReflectionTestUtils.setField(migration, "mongoTemplate", mongoTemplate);
+        migration.migrate();
+
+        SequenceBackfill backfill = new SequenceBackfill();
+        ReflectionTestUtils.setField(backfill, "mongoTemplate", mongoTemplate);
+        backfill.migrate();
+    }
+}
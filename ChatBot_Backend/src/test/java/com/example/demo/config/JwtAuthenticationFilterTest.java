@@ -0,0 +1,55 @@
+package com.example.demo.config;
+
+import com.example.demo.Services.JwtService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtAuthenticationFilterTest {
+
+    private final JwtService jwtService = mock(JwtService.class);
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService);
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void aValidTokenAuthenticatesAsItsUser() throws Exception {
+        when(jwtService.userIdOf("good")).thenReturn("u1");
+
+        assertThat(filterWithToken("good").getName()).isEqualTo("u1");
+    }
+
+    @Test
+    void anInvalidTokenLeavesTheRequestUnauthenticated() throws Exception {
+        when(jwtService.userIdOf("expired")).thenThrow(new RuntimeException("Token expired"));
+
+        // The request still reaches the chain (e.g. /users/login) and the authorization rules decide
+        assertThat(filterWithToken("expired")).isNull();
+    }
+
+    private Authentication filterWithToken(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/users/login");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<Authentication> seen = new AtomicReference<>();
+
+        filter.doFilter(request, response,
+                (req, res) -> seen.set(SecurityContextHolder.getContext().getAuthentication()));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        return seen.get();
+    }
+}